@@ -3,13 +3,16 @@
  * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
  */
 
+import java.io.Serializable;
+
 /**
  * Stores information for an attribute. An attribute has a name.
  *
  * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
  * @since 	2018-09-18
  */
-public class Attribute extends Object {
+public class Attribute extends Object implements Serializable {
+	private static final long serialVersionUID = 1L;
 	/** Stores information for an attribute. An attribute has a name. */
 	protected String name;
  
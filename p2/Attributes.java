@@ -3,6 +3,12 @@
  * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
  */
 
+import java.io.Serializable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Scanner;
 import java.util.Collections;
 import java.util.ArrayList;
@@ -13,7 +19,8 @@ import java.util.ArrayList;
  * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
  * @since 	2018-09-18
  */
-public class Attributes {
+public class Attributes implements Serializable {
+	private static final long serialVersionUID = 1L;
 	/** a list of attributes */
 	private ArrayList<Attribute> attributes;
 	/** a flag indicating that the data set has one or more numeric attributes */
@@ -177,6 +184,31 @@ public class Attributes {
 		return stringAttributes.toString();
 	}
 
+	/**
+	 * Writes the string representation of this Attributes object.
+	 * 
+	 * @param  writer - the writer to which the attributes are written
+	 * @throws IOException - if the writer fails
+	 */
+	public void writeTo( Writer writer ) throws IOException {
+		for( Attribute attribute : attributes ) {
+			writer.write( attribute.toString() + "\n" );
+		}
+	}
+
+	/**
+	 * Writes the string representation of this Attributes object.
+	 * The stream is flushed but not closed.
+	 * 
+	 * @param  out - the stream to which the attributes are written
+	 * @throws IOException - if the stream fails
+	 */
+	public void writeTo( OutputStream out ) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out));
+		writeTo(writer);
+		writer.flush();
+	}
+
 	/**
 	 * A main method for testing.
 	 * 
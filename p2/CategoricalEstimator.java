@@ -3,23 +3,22 @@
  * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
  */
 
-import java.util.Collections;
-import java.util.ArrayList;
-
 /**
  * Categorical Estimator Class
+ * The count of each category is a primitive counter, so adding a sample never allocates
  *
  * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
  * @since 	2018-10-15
  */
 public class CategoricalEstimator extends Estimator {
-	protected ArrayList<Integer> dist;
+	private static final long serialVersionUID = 1L;
+	protected int[] dist;
 
 	/**
  	 * Default constructor.
  	 */
 	public CategoricalEstimator() {
-		this.dist = new ArrayList<Integer>();
+		this.dist = new int[0];
 	}
 
 	/**
@@ -28,10 +27,7 @@ public class CategoricalEstimator extends Estimator {
 	 * @param  k - number of categories
 	 */
 	public CategoricalEstimator( Integer k ) {
-		this.dist = new ArrayList<Integer>(k);
-		for(int i = 0; i < k; i++) {
-			this.dist.add(0);
-		}
+		this.dist = new int[k];
 	}
 
 	/**
@@ -40,20 +36,52 @@ public class CategoricalEstimator extends Estimator {
 	 * @param  x - an index of category
 	 * @throws Exception
 	 */
-	public void add( Number x ) throws Exception {
-		int index = x.intValue();
-		this.dist.set(index, this.dist.get(index) + 1); // Increment category by one
+	public void add( double x ) throws Exception {
+		this.dist[(int) x]++; // Increment category by one
 		this.n++;
 	}
 
+	/**
+	 * Subtract one from the category
+	 * 
+	 * @param  x - an index of category
+	 * @throws Exception - if the category has no samples
+	 */
+	public void remove( double x ) throws Exception {
+		int index = (int) x;
+		if( this.dist[index] == 0 ) {
+			throw new Exception("Cannot remove a category that was not added");
+		}
+		this.dist[index]--;
+		this.n--;
+	}
+
+	/**
+	 * Add the counts of another categorical estimator
+	 * 
+	 * @param  other - a categorical estimator with the same number of categories
+	 * @throws Exception - if the estimators do not match
+	 */
+	public void merge( Estimator other ) throws Exception {
+		if( !(other instanceof CategoricalEstimator) || ((CategoricalEstimator) other).dist.length != this.dist.length ) {
+			throw new Exception("Cannot merge a categorical estimator with a different estimator");
+		}
+
+		int[] counts = ((CategoricalEstimator) other).dist;
+		for(int i = 0; i < counts.length; i++) {
+			this.dist[i] += counts[i];
+		}
+		this.n += other.n;
+	}
+
 	/**
 	 * Gets probability using add one smoothing
 	 * 
 	 * @param  x - an index of the category that want to get probability
 	 * @return a number of probability
 	 */
-	public Double getProbability( Number x ) {
-		return (double) (this.dist.get(x.intValue()) + 1) / (double) (n + this.dist.size());
+	public double getProbability( double x ) {
+		return (double) (this.dist[(int) x] + 1) / (double) (n + this.dist.length);
 	}
 
-}
\ No newline at end of file
+}
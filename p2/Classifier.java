@@ -36,6 +36,35 @@ public abstract class Classifier extends Object implements OptionHandler {
 	public abstract Classifier clone();
 	
 	abstract public double[] getDistribution( Example example ) throws Exception;
+
+	/**
+	 * Get distributions of predicted class labels for a range of examples
+	 * The distribution of example r is written at (r - start) * c of the buffer, where c is the number of class labels
+	 * 
+	 * @param  dataset       - a DataSet object
+	 * @param  start         - the first example
+	 * @param  end           - the end of the range
+	 * @param  distributions - the buffer receiving the distributions, of at least (end - start) * c entries
+	 * @throws Exception 
+	 */
+	public void getDistributions( DataSet dataset, int start, int end, double[] distributions ) throws Exception {
+		int classes = dataset.getAttributes().getClassAttribute().size();
+		Examples examples = dataset.getExamples();
+		for(int r = start; r < end; r++) {
+			System.arraycopy(this.getDistribution(examples.get(r)), 0, distributions, (r - start) * classes, classes);
+		}
+	}
+
+	/**
+	 * Get distributions of predicted class labels for all examples in the given dataset
+	 * 
+	 * @param  dataset       - a DataSet object
+	 * @param  distributions - the buffer receiving the distributions, of at least n * c entries
+	 * @throws Exception 
+	 */
+	public void getDistributions( DataSet dataset, double[] distributions ) throws Exception {
+		this.getDistributions(dataset, 0, dataset.getExamples().size(), distributions);
+	}
 	
 	public void setOptions( String[] options ) throws Exception {
 
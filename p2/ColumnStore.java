@@ -0,0 +1,236 @@
+/*
+ * ColumnStore.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Stores the examples of a data set column by column.
+ * Each numeric attribute is a double array and each nominal attribute is
+ * an array of value indices, using bytes or shorts depending on its domain size.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-20
+ */
+public class ColumnStore {
+	/** the attributes of the stored examples */
+	private Attributes attributes;
+	/** the number of stored rows */
+	private int rows;
+	/** the number of rows the columns can hold */
+	private int capacity;
+	/** numeric columns, null for nominal attributes stored as codes */
+	private double[][] numericColumns;
+	/** nominal columns with domains of at most 256 values */
+	private byte[][] byteColumns;
+	/** nominal columns with domains of at most 65536 values */
+	private short[][] shortColumns;
+
+	/**
+	 * Explicit constructor.
+	 *
+	 * @param attributes - the attributes of the examples
+	 * @param capacity - the initial number of rows
+	 */
+	public ColumnStore( Attributes attributes, int capacity ) {
+		this.attributes = attributes;
+		this.rows = 0;
+		this.capacity = Math.max(capacity, 1);
+		this.numericColumns = new double[attributes.size()][];
+		this.byteColumns = new byte[attributes.size()][];
+		this.shortColumns = new short[attributes.size()][];
+
+		for(int j = 0; j < attributes.size(); j++) {
+			int domain = attributes.get(j).size();
+
+			// Numeric attributes, and nominal ones too large for a short code
+			if( attributes.get(j) instanceof NumericAttribute || domain > 65536 ) {
+				numericColumns[j] = new double[this.capacity];
+			}
+			else if( domain <= 256 ) {
+				byteColumns[j] = new byte[this.capacity];
+			}
+			else {
+				shortColumns[j] = new short[this.capacity];
+			}
+		}
+	}
+
+	/**
+	 * Appends the values of an example as a new row.
+	 *
+	 * @param  example - the example to be appended
+	 * @return the index of the new row
+	 */
+	public int add( Example example ) {
+		if( rows == capacity ) {
+			grow();
+		}
+
+		for(int j = 0; j < numericColumns.length; j++) {
+			set(rows, j, example.getDouble(j));
+		}
+		return rows++;
+	}
+
+	/**
+	 * Copies the rows of the given examples into a new store.
+	 * The examples must be rows of this store or a view of them.
+	 *
+	 * @param  examples - the examples to be copied
+	 * @return a new store holding the selected rows
+	 */
+	public ColumnStore copy( Examples examples ) {
+		ColumnStore copy = new ColumnStore(attributes, examples.size());
+		copy.rows = examples.size();
+
+		for(int j = 0; j < numericColumns.length; j++) {
+			for(int r = 0; r < copy.rows; r++) {
+				int row = examples.getRow(r);
+				if( numericColumns[j] != null ) copy.numericColumns[j][r] = numericColumns[j][row];
+				else if( byteColumns[j] != null ) copy.byteColumns[j][r] = byteColumns[j][row];
+				else copy.shortColumns[j][r] = shortColumns[j][row];
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Doubles the capacity of every column.
+	 */
+	private void grow() {
+		capacity *= 2;
+		for(int j = 0; j < numericColumns.length; j++) {
+			if( numericColumns[j] != null ) numericColumns[j] = Arrays.copyOf(numericColumns[j], capacity);
+			else if( byteColumns[j] != null ) byteColumns[j] = Arrays.copyOf(byteColumns[j], capacity);
+			else shortColumns[j] = Arrays.copyOf(shortColumns[j], capacity);
+		}
+	}
+
+	/**
+	 * Gets the attributes of the stored examples.
+	 *
+	 * @return the attributes
+	 */
+	public Attributes getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Returns the value of an attribute in a row.
+	 *
+	 * @param  row - the row index
+	 * @param  j - the attribute index
+	 * @return the value, or the value index for nominal attributes
+	 */
+	public double getDouble( int row, int j ) {
+		if( numericColumns[j] != null ) return numericColumns[j][row];
+		if( byteColumns[j] != null ) return byteColumns[j][row] & 0xFF;
+		return shortColumns[j][row] & 0xFFFF;
+	}
+
+	/**
+	 * Returns the value index of a nominal attribute in a row.
+	 *
+	 * @param  row - the row index
+	 * @param  j - the attribute index
+	 * @return the value index
+	 */
+	public int getCode( int row, int j ) {
+		if( byteColumns[j] != null ) return byteColumns[j][row] & 0xFF;
+		if( shortColumns[j] != null ) return shortColumns[j][row] & 0xFFFF;
+		return (int) numericColumns[j][row];
+	}
+
+	/**
+	 * Sets the value of an attribute in a row.
+	 *
+	 * @param row - the row index
+	 * @param j - the attribute index
+	 * @param value - the value, or the value index for nominal attributes
+	 */
+	public void set( int row, int j, double value ) {
+		if( numericColumns[j] != null ) numericColumns[j][row] = value;
+		else if( byteColumns[j] != null ) byteColumns[j][row] = (byte) value;
+		else shortColumns[j][row] = (short) value;
+	}
+
+	/**
+	 * Returns true if the attribute is stored as a double column.
+	 *
+	 * @param  j - the attribute index
+	 * @return true if getNumericColumn(j) is not null
+	 */
+	public boolean isNumericColumn( int j ) {
+		return numericColumns[j] != null;
+	}
+
+	/**
+	 * Returns the backing array of a double column.
+	 * Only the first size() entries are valid.
+	 *
+	 * @param  j - the attribute index
+	 * @return the column, or null if the attribute is stored as codes
+	 */
+	public double[] getNumericColumn( int j ) {
+		return numericColumns[j];
+	}
+
+	/**
+	 * Returns the backing array of a byte-coded nominal column.
+	 * Codes must be read with & 0xFF.
+	 *
+	 * @param  j - the attribute index
+	 * @return the column, or null if the attribute is not byte coded
+	 */
+	public byte[] getByteColumn( int j ) {
+		return byteColumns[j];
+	}
+
+	/**
+	 * Returns the backing array of a short-coded nominal column.
+	 * Codes must be read with & 0xFFFF.
+	 *
+	 * @param  j - the attribute index
+	 * @return the column, or null if the attribute is not short coded
+	 */
+	public short[] getShortColumn( int j ) {
+		return shortColumns[j];
+	}
+
+	/**
+	 * Copies the value indices of a nominal column for the given examples into an int array.
+	 * The examples must be rows of this store or a view of them.
+	 *
+	 * @param  j - the attribute index
+	 * @param  examples - the examples whose values are copied
+	 * @return an array of value indices, one per example
+	 */
+	public int[] getCodes( int j, Examples examples ) {
+		int[] codes = new int[examples.size()];
+		for(int r = 0; r < codes.length; r++) {
+			codes[r] = getCode(examples.getRow(r), j);
+		}
+		return codes;
+	}
+
+	/**
+	 * Sets the number of stored rows after the backing arrays were filled directly.
+	 *
+	 * @param rows - the number of valid rows, at most the capacity
+	 */
+	public void setSize( int rows ) {
+		if( rows > capacity ) throw new IllegalArgumentException("Size " + rows + " exceeds capacity " + capacity);
+		this.rows = rows;
+	}
+
+	/**
+	 * Returns the number of stored rows.
+	 *
+	 * @return the number of rows
+	 */
+	public int size() {
+		return rows;
+	}
+}
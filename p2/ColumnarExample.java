@@ -0,0 +1,95 @@
+/*
+ * ColumnarExample.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+/**
+ * A view of one row of a ColumnStore.
+ * Reads and writes go directly to the columns, so no values are copied.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-20
+ */
+public class ColumnarExample extends Example {
+	private static final long serialVersionUID = 1L;
+	/** an empty array since the values live in the store */
+	private static final double[] NO_VALUES = new double[0];
+	/** the store holding the values */
+	private ColumnStore store;
+	/** the row of this example in the store */
+	private int row;
+
+	/**
+	 * Explicit constructor.
+	 *
+	 * @param store - the store holding the values
+	 * @param row - the row of this example
+	 */
+	public ColumnarExample( ColumnStore store, int row ) {
+		super(NO_VALUES);
+		this.store = store;
+		this.row = row;
+	}
+
+	/**
+	 * Serializes this example as a plain Example holding a copy of its values,
+	 * since the store is not serialized with it.
+	 *
+	 * @return the plain example
+	 */
+	private Object writeReplace() {
+		double[] copy = new double[this.size()];
+		for(int i = 0; i < copy.length; i++) {
+			copy[i] = this.getDouble(i);
+		}
+		return new Example(copy);
+	}
+
+	/**
+	 * Rows of a store have a fixed number of values.
+	 *
+	 * @param  value - unused
+	 * @return never returns
+	 */
+	public boolean add( double value ) {
+		throw new UnsupportedOperationException("Columnar examples have a fixed size");
+	}
+
+	/**
+	 * Returns the ith value of this row.
+	 *
+	 * @param  i - the index of the value
+	 * @return the ith value
+	 */
+	public double getDouble( int i ) {
+		return store.getDouble(row, i);
+	}
+
+	/**
+	 * Sets the ith value of this row.
+	 *
+	 * @param i - the index of the value
+	 * @param value - the new value
+	 */
+	public void set( int i, double value ) {
+		store.set(row, i, value);
+	}
+
+	/**
+	 * Returns the number of values of this row.
+	 *
+	 * @return the number of attributes
+	 */
+	public int size() {
+		return store.getAttributes().size();
+	}
+
+	/**
+	 * Returns the row of this example in its store.
+	 *
+	 * @return the row index
+	 */
+	public int getRow() {
+		return row;
+	}
+}
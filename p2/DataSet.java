@@ -4,10 +4,17 @@
  */
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Random;
-import java.util.Scanner;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Implements a class for a data set for machine-learning methods.
@@ -16,6 +23,10 @@ import java.util.ArrayList;
  * @since 	2018-09-18
  */
 public class DataSet {
+	/** files at least this large are loaded by parallel threads */
+	protected static final long PARALLEL_LOAD_BYTES = 64L << 20;
+	/** the largest part of the examples section mapped and parsed by one task */
+	protected static final long MAX_CHUNK_BYTES = 256L << 20;
 	/** the name of this data set */
 	protected String name = null;
 	/** the attributes of this data set */
@@ -28,6 +39,14 @@ public class DataSet {
 	protected int folds = 10;
 	/** a list of index indicates testing set for that partition number */
   	protected int[] partitions = null;
+	/** the column storage of the examples, or null if stored row by row */
+	protected ColumnStore columns = null;
+	/** whether examples are to be stored off heap */
+	protected boolean offHeap = false;
+	/** the directory for the off-heap backing file, or null for direct memory */
+	protected String offHeapDirectory = null;
+	/** the off-heap storage of the examples, created by the first add */
+	protected OffHeapStore offHeapStore = null;
 
 	/**
 	 * Default constructor.
@@ -59,13 +78,161 @@ public class DataSet {
 		examples = new Examples(this.attributes);
 	}
 
+	/**
+	 * Explicit constructor for a columnar data set holding all rows of a store.
+	 * 
+	 * @param attributes - the attributes for this data set
+	 * @param columns - the columns holding the examples
+	 */
+	public DataSet( Attributes attributes, ColumnStore columns ) {
+		this.attributes = attributes;
+		this.examples = new Examples(this.attributes);
+		this.setColumns(columns);
+	}
+
+	/**
+	 * Explicit constructor for examples already held in an off-heap store.
+	 * 
+	 * @param attributes - the attributes for this data set
+	 * @param store - the store holding the examples
+	 */
+	public DataSet( Attributes attributes, OffHeapStore store ) {
+		this.attributes = attributes;
+		this.examples = new Examples(attributes, store);
+		this.offHeap = true;
+		this.offHeapDirectory = store.getDirectory();
+		this.offHeapStore = store;
+	}
+
+	/**
+	 * Explicit constructor for a view of selected examples of another data set.
+	 * The view shares the examples and columns of the parent without copying them.
+	 * 
+	 * @param parent - the data set to be viewed
+	 * @param index - the positions in the parent of the examples in this view
+	 */
+	protected DataSet( DataSet parent, int[] index ) {
+		this.name = parent.name;
+		this.attributes = parent.attributes;
+		this.examples = new Examples(parent.examples, index);
+		this.columns = parent.columns;
+		this.offHeap = parent.offHeap;
+		this.offHeapDirectory = parent.offHeapDirectory;
+		this.offHeapStore = parent.offHeapStore;
+		this.random = parent.random;
+		this.folds = parent.folds;
+	}
+
 	/**
 	 * Adds the specified example to this data set.
 	 * 
 	 * @param example - the example to be added
 	 */
 	public void add( Example example ) {
-		examples.add(example);
+		// Off heap, the store is created once the attributes are known
+		if( offHeap && offHeapStore == null ) {
+			offHeapStore = new OffHeapStore(attributes.size(), offHeapDirectory);
+			examples = new Examples(attributes, offHeapStore);
+		}
+
+		// Columnar mode, copy the values into the columns and keep a row view
+		// The view is added first since views of data sets are read-only
+		if( columns != null ) {
+			examples.add(new ColumnarExample(columns, columns.size()));
+			columns.add(example);
+		}
+		else {
+			examples.add(example);
+		}
+	}
+
+	/**
+	 * Stores the examples of this empty data set outside the Java heap.
+	 * Must be called before examples are added or loaded.
+	 * 
+	 * @param directory - the directory for a memory-mapped backing file, or null to use direct memory
+	 * @throws Exception - if the data set already has examples
+	 */
+	public void setOffHeap( String directory ) throws Exception {
+		if( !examples.isEmpty() ) {
+			throw new Exception("Off-heap storage must be set before examples are added");
+		}
+		this.offHeap = true;
+		this.offHeapDirectory = directory;
+	}
+
+	/**
+	 * Returns true if this data set stores its examples outside the Java heap.
+	 *
+	 * @return true if this data set is off heap
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * Gets the off-heap storage of this data set.
+	 *
+	 * @return the store, or null if this data set is on the heap
+	 */
+	public OffHeapStore getOffHeapStore() {
+		return offHeapStore;
+	}
+
+	/**
+	 * Gets the directory for the off-heap backing file.
+	 *
+	 * @return the directory, or null for direct memory
+	 */
+	public String getOffHeapDirectory() {
+		return offHeapDirectory;
+	}
+
+	/**
+	 * Converts this data set to columnar storage.
+	 * The values of every example are copied into a ColumnStore and
+	 * the examples are replaced by row views of the store.
+	 * Views of data sets cannot be converted, and off-heap data sets stay off heap.
+	 */
+	public void toColumnar() {
+		if( columns != null || offHeap ) return;
+
+		ColumnStore store = new ColumnStore(attributes, examples.size());
+		for(int i = 0; i < examples.size(); i++) {
+			int row = store.add(examples.get(i));
+			examples.set(i, new ColumnarExample(store, row));
+		}
+		columns = store;
+	}
+
+	/**
+	 * Sets the columns of this empty data set and adds a row view for every row.
+	 * 
+	 * @param columns - the columns holding the examples
+	 */
+	public void setColumns( ColumnStore columns ) {
+		this.columns = columns;
+		for(int row = 0; row < columns.size(); row++) {
+			examples.add(new ColumnarExample(columns, row));
+		}
+	}
+
+	/**
+	 * Returns true if this data set stores its examples column by column.
+	 *
+	 * @return true if this data set is columnar
+	 */
+	public boolean isColumnar() {
+		return columns != null;
+	}
+
+	/**
+	 * Gets the column storage of this data set.
+	 *
+	 * @return the columns, or null if this data set is stored row by row
+	 */
+	public ColumnStore getColumns() {
+		return columns;
 	}
 
 	/**
@@ -103,8 +270,38 @@ public class DataSet {
 	 */
 	public void load( String filename ) throws Exception {
 		try {
-			Scanner scanner = new Scanner(new File(filename));
-			parse(scanner);
+			// Large files are split and parsed by several threads
+			if( new File(filename).length() >= PARALLEL_LOAD_BYTES && Runtime.getRuntime().availableProcessors() > 1 ) {
+				loadParallel(filename);
+				return;
+			}
+
+			MFFReader reader = new MFFReader(new FileInputStream(filename));
+			try {
+				name = reader.readName();
+				reader.readAttributes(attributes);
+				reader.readExamples(this);
+			}
+			finally {
+				reader.close();
+			}
+		} // Try
+	  	catch ( Exception e ) {
+			System.out.println( e.getMessage() );
+			e.printStackTrace();
+	  	} // Catch
+	}
+
+	/**
+	 * Loads a data set from the specified file in the binary format written by MFFBWriter.
+	 * The loaded data set is columnar.
+	 * 
+	 * @param filename - the .mffb file from which to read
+	 * @throws Exception - if the file is not found or is not in the binary format
+	 */
+	public void loadBinary( String filename ) throws Exception {
+		try {
+			new MFFBReader(filename).read(this);
 		} // Try
 	  	catch ( Exception e ) {
 			System.out.println( e.getMessage() );
@@ -113,30 +310,99 @@ public class DataSet {
 	}
 
 	/**
-	 * Parses a data set from the specified scanner, which consists of
-	 * parsing the data set's header, attributes, and examples.
+	 * Loads a data set from the specified file using one thread per processor.
+	 * The file is memory mapped and the examples section is split into parts
+	 * that end at line breaks. Each part is parsed by its own task and the
+	 * parts are added in file order, so the examples are in the same order as
+	 * when the file is loaded by a single thread.
 	 * 
-	 * @param scanner - a scanner containing the data set's tokens
-	 * @throws Exception - if a parsing exception occurs
+	 * @param filename - the file from which to read
+	 * @throws Exception - if the file is not found or if a parsing exception occurs
 	 */
-	private void parse( Scanner scanner ) throws Exception {
+	protected void loadParallel( String filename ) throws Exception {
+		FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+
 		try {
-			if( !scanner.next().equals("@dataset") )
-				throw new Exception("Parse error. First token is not @dataset");
-
-			// Set dataset name
-			name = scanner.next();
-
-			// The following of scanner are attributes
-			attributes.parse(scanner);
-			// The last part of scanner are examples
-			examples.parse(scanner);
-
-	  } // Try
-	  catch ( Exception e ) {
-	      System.out.println( e.getMessage() );
-	      e.printStackTrace();
-	  } // Catch
+			long size = channel.size();
+
+			// Parse the header from the start of the file
+			MFFReader reader = new MFFReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE)));
+			name = reader.readName();
+			reader.readAttributes(attributes);
+			reader.skipLine();
+			long start = reader.getOffset();
+
+			// Split the examples section into parts that end at line breaks
+			int parts = (int) Math.max(threads * 4L, (size - start) / MAX_CHUNK_BYTES + 1);
+			long[] bounds = new long[parts + 1];
+			bounds[0] = start;
+			bounds[parts] = size;
+			for(int i = 1; i < parts; i++) {
+				long target = Math.max(bounds[i-1], start + (size - start) / parts * i);
+				bounds[i] = nextLineStart(channel, target);
+			}
+
+			// Parse every part in its own data set
+			ArrayList<Future<DataSet>> results = new ArrayList<Future<DataSet>>();
+			for(int i = 0; i < parts; i++) {
+				final long from = bounds[i];
+				final long to = bounds[i+1];
+				if( to <= from ) continue;
+
+				results.add(pool.submit(() -> {
+					DataSet part = new DataSet(attributes);
+					new MFFReader(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from)).readExampleLines(part);
+					return part;
+				}));
+			}
+
+			// Concatenate the parts in file order, releasing each part once added
+			for(int i = 0; i < results.size(); i++) {
+				try {
+					for(Example example : results.get(i).get().getExamples()) {
+						add(example);
+					}
+					results.set(i, null);
+				}
+				catch ( ExecutionException e ) {
+					if( e.getCause() instanceof Exception ) throw (Exception) e.getCause();
+					throw e;
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the offset of the first line that starts at or after the given offset.
+	 * 
+	 * @param  channel - the file
+	 * @param  offset - an offset in the file
+	 * @return the offset after the next line break, or the file size if there is none
+	 * @throws IOException - if the file cannot be read
+	 */
+	private static long nextLineStart( FileChannel channel, long offset ) throws IOException {
+		if( offset == 0 ) return 0;
+
+		// A line starts at the offset if the byte before it is a line break
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long position = offset - 1;
+
+		while( true ) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if( read <= 0 ) return channel.size();
+
+			for(int i = 0; i < read; i++) {
+				if( buffer.get(i) == '\n' ) return position + i + 1;
+			}
+			position += read;
+		}
 	}
 
 	/**
@@ -155,20 +421,51 @@ public class DataSet {
 	 * @return a string containing data set
 	 */
 	public String toString() {
-		StringBuilder stringDataSet = new StringBuilder();
+		StringWriter writer = new StringWriter();
+		try {
+			writeTo(writer);
+		} // Try
+		catch ( IOException e ) {
+			System.out.println( e.getMessage() );
+			e.printStackTrace();
+		} // Catch
+
+		return writer.toString();
+	}
 
+	/**
+	 * Writes the data set in a format identical to that of the file format.
+	 * Examples are streamed row by row, so large data sets are never held in one string.
+	 * 
+	 * @param  writer - the writer to which the data set is written
+	 * @throws IOException - if the writer fails
+	 */
+	public void writeTo( Writer writer ) throws IOException {
 		// Dataset line
-		stringDataSet.append("@dataset " + this.name + "\n\n");
+		writer.write("@dataset " + this.name + "\n\n");
 		// Attributes lines
-		stringDataSet.append(attributes.toString() + "\n");
+		attributes.writeTo(writer);
+		writer.write("\n");
 		// Examples lines
-		stringDataSet.append(examples.toString());
+		examples.writeTo(writer);
+	}
 
-		return stringDataSet.toString();
+	/**
+	 * Writes the data set in a format identical to that of the file format.
+	 * The stream is flushed but not closed.
+	 * 
+	 * @param  out - the stream to which the data set is written
+	 * @throws IOException - if the stream fails
+	 */
+	public void writeTo( OutputStream out ) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out), 1 << 16);
+		writeTo(writer);
+		writer.flush();
 	}
 
 	/**
 	 * Get TrainTestSets from partitioned dataset
+	 * The training and testing sets are views of this data set, so no examples are copied
 	 * 
 	 * @param  p - a partition number, must not exceed fold number
 	 * @return a TrainTestSets partitioned from entire dataset corresponding to the partition number
@@ -177,20 +474,29 @@ public class DataSet {
 	public TrainTestSets getCVSets( int p ) throws Exception {
 		try {
 			TrainTestSets tts = new TrainTestSets();
-			DataSet train = new DataSet(this.attributes);
-			DataSet test = new DataSet(this.attributes);
 
-			for (int i = 0; i < this.examples.size(); i++) {
+			// Count the testing examples to size the index arrays
+			int testSize = 0;
+			for (int i = 0; i < this.partitions.length; i++) {
+				if (this.partitions[i] == p) testSize++;
+			}
+
+			int[] trainIndex = new int[this.partitions.length - testSize];
+			int[] testIndex = new int[testSize];
+			int trainCount = 0;
+			int testCount = 0;
+
+			for (int i = 0; i < this.partitions.length; i++) {
 				if (this.partitions[i] == p) {
-					test.add(this.examples.get(i));
+					testIndex[testCount++] = i;
 				}
 				else {
-					train.add(this.examples.get(i));
+					trainIndex[trainCount++] = i;
 				}
 			}
 
-			tts.setTrainingSet(train);
-			tts.setTestingSet(test);
+			tts.setTrainingSet(new DataSet(this, trainIndex));
+			tts.setTestingSet(new DataSet(this, testIndex));
 
 			return tts;
 		} // Try
@@ -202,6 +508,16 @@ public class DataSet {
 		return null;
 	}
 	
+	/**
+	 * Return the partition of an example for cross validation
+	 * 
+	 * @param  i - the index of the example
+	 * @return the number of the fold in which the example is tested
+	 */
+	public int getPartition( int i ) {
+		return this.partitions[i];
+	}
+
 	/**
 	 * Return fold number for cross validation
 	 * 
@@ -0,0 +1,145 @@
+/*
+ * DataSetCache.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An on-disk cache of parsed data sets.
+ * The first load of a file stores a snapshot in the binary format of MFFBWriter;
+ * later loads of the same, unchanged file read the snapshot instead of parsing the text.
+ * A snapshot is named after a hash of the file's path and its size and modification time,
+ * so a changed file misses the cache and its old snapshot is deleted.
+ * The total size of the snapshots is bounded by evicting the least recently used ones.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-25
+ */
+public class DataSetCache {
+	/** the default bound on the total size of the snapshots, in bytes */
+	public static final long DEFAULT_MAX_BYTES = 1L << 30;
+	/** the directory holding the snapshots */
+	private File directory;
+	/** the bound on the total size of the snapshots, in bytes */
+	private long maxBytes;
+
+	/**
+	 * Explicit constructor. Creates the directory if needed.
+	 *
+	 * @param  directory - the directory holding the snapshots
+	 * @param  maxBytes - the bound on the total size of the snapshots
+	 * @throws IOException - if the directory cannot be created
+	 */
+	public DataSetCache( String directory, long maxBytes ) throws IOException {
+		this.directory = new File(directory);
+		this.maxBytes = maxBytes;
+		Files.createDirectories(this.directory.toPath());
+	}
+
+	/**
+	 * Loads a data set, from its snapshot if the file is unchanged since the snapshot was stored.
+	 * Data sets loaded from a snapshot are columnar.
+	 *
+	 * @param  filename - the file from which to read
+	 * @return the loaded data set
+	 * @throws Exception - if the file is not found or if a parsing exception occurs
+	 */
+	public DataSet load( String filename ) throws Exception {
+		File file = new File(filename).getCanonicalFile();
+		String prefix = hash(file.getPath()) + "-";
+		File entry = new File(directory, prefix + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + ".mffb");
+
+		// Snapshots of older versions of the file are stale
+		File[] stale = directory.listFiles((dir, name) -> name.startsWith(prefix) && !name.equals(entry.getName()));
+		if( stale != null ) {
+			for( File snapshot : stale ) snapshot.delete();
+		}
+
+		if( entry.isFile() ) {
+			try {
+				DataSet dataset = new DataSet();
+				new MFFBReader(entry.getPath()).read(dataset);
+				entry.setLastModified(System.currentTimeMillis()); // Mark as recently used
+				return dataset;
+			}
+			catch ( Exception e ) {
+				// A damaged snapshot is replaced below
+				entry.delete();
+			}
+		}
+
+		DataSet dataset = new DataSet();
+		dataset.load(filename);
+		if( dataset.name != null ) {
+			store(dataset, entry);
+		}
+		return dataset;
+	}
+
+	/**
+	 * Stores a snapshot and evicts the least recently used snapshots beyond the size bound.
+	 * The snapshot is written to a temporary file first, so other processes never read a partial one.
+	 *
+	 * @param  dataset - the data set to store
+	 * @param  entry - the snapshot file
+	 * @throws IOException - if the snapshot cannot be written
+	 */
+	private void store( DataSet dataset, File entry ) throws IOException {
+		File temporary = File.createTempFile("snapshot", ".tmp", directory);
+		try {
+			new MFFBWriter(temporary.getPath()).write(dataset);
+			Files.move(temporary.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			temporary.delete();
+		}
+
+		evict(entry);
+	}
+
+	/**
+	 * Deletes the least recently used snapshots until the total size is within the bound.
+	 *
+	 * @param keep - a snapshot that is never evicted
+	 */
+	private void evict( File keep ) {
+		File[] snapshots = directory.listFiles((dir, name) -> name.endsWith(".mffb"));
+		if( snapshots == null ) return;
+
+		long total = 0;
+		for( File snapshot : snapshots ) total += snapshot.length();
+
+		Arrays.sort(snapshots, Comparator.comparingLong(File::lastModified));
+		for( File snapshot : snapshots ) {
+			if( total <= maxBytes ) break;
+			if( snapshot.equals(keep) ) continue;
+
+			long length = snapshot.length();
+			if( snapshot.delete() ) total -= length;
+		}
+	}
+
+	/**
+	 * Returns the SHA-256 hash of a string in hexadecimal.
+	 *
+	 * @param  value - the string
+	 * @return the hash
+	 * @throws Exception - if SHA-256 is unavailable
+	 */
+	private static String hash( String value ) throws Exception {
+		byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+		StringBuilder hex = new StringBuilder();
+		for( byte b : digest ) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * DistanceKernel.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+/**
+ * Adds the squared differences between a query value and a block of training values,
+ * one attribute column at a time, to the distances of the rows of the block.
+ * This scalar kernel is the fallback; when the Vector API module is present and the
+ * optional VectorDistanceKernel class has been compiled, that kernel is selected instead.
+ * Both kernels compute every row's sum in the same order, so their results are identical.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-30
+ */
+public class DistanceKernel {
+	/** the kernel selected for this virtual machine */
+	private static final DistanceKernel INSTANCE = select();
+
+	/**
+	 * Returns the kernel selected for this virtual machine.
+	 *
+	 * @return the vector kernel if available, or the scalar kernel otherwise
+	 */
+	public static DistanceKernel getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Selects the vector kernel if the Vector API module is present and the kernel class can be loaded.
+	 *
+	 * @return the selected kernel
+	 */
+	private static DistanceKernel select() {
+		if( ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() ) {
+			try {
+				return (DistanceKernel) Class.forName("VectorDistanceKernel").getDeclaredConstructor().newInstance();
+			}
+			catch ( Exception | LinkageError e ) {
+				// The vector kernel was not compiled, so fall back to the scalar kernel
+			}
+		}
+		return new DistanceKernel();
+	}
+
+	/**
+	 * Returns the name of this kernel.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return "scalar";
+	}
+
+	/**
+	 * Adds the squared differences between a value and a block of a column to the distances of its rows.
+	 *
+	 * @param value - the query value
+	 * @param column - the column of training values
+	 * @param rows - the row of the column for each index, or null if index r is row r
+	 * @param distances - the distances to which the squared differences are added, starting at distances[0]
+	 * @param from - the first row of the block
+	 * @param to - the end of the block
+	 */
+	public void addSquaredDifferences( double value, double[] column, int[] rows, double[] distances, int from, int to ) {
+		int count = to - from;
+		if( rows == null ) {
+			for(int i = 0; i < count; i++) {
+				double difference = value - column[from + i];
+				distances[i] += difference * difference;
+			}
+		}
+		else {
+			for(int i = 0; i < count; i++) {
+				double difference = value - column[rows[from + i]];
+				distances[i] += difference * difference;
+			}
+		}
+	}
+}
@@ -3,13 +3,16 @@
  * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
  */
 
+import java.io.Serializable;
+
 /**
  * Abstract class for an estimator
  *
  * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
  * @since 	2018-10-15
  */
-public abstract class Estimator extends Object {
+public abstract class Estimator extends Object implements Serializable {
+	private static final long serialVersionUID = 1L;
 	/* number of samples */
 	protected int n = 0;
 
@@ -20,7 +23,33 @@ public abstract class Estimator extends Object {
 		this.n = 0;
 	}
 
-	abstract public void add( Number x ) throws Exception;
+	abstract public void add( double x ) throws Exception;
+
+	/**
+	 * Remove a sample that was added to this estimator
+	 * 
+	 * @param  x - value
+	 * @throws Exception - if the estimator has no samples
+	 */
+	abstract public void remove( double x ) throws Exception;
+
+	/**
+	 * Add the samples of another estimator of the same kind to this estimator
+	 * 
+	 * @param  other - an estimator fed with other samples
+	 * @throws Exception - if the estimators are of different kinds or sizes
+	 */
+	abstract public void merge( Estimator other ) throws Exception;
+
+	/**
+	 * Add a boxed value to this estimator
+	 * 
+	 * @param  x - value
+	 * @throws Exception
+	 */
+	public void add( Number x ) throws Exception {
+		this.add( x.doubleValue() );
+	}
 	
 	/**
 	 * Get number of samples in this estimator
@@ -31,5 +60,15 @@ public abstract class Estimator extends Object {
 		return this.n;
 	}
 	
-	abstract public Double getProbability( Number x );
+	abstract public double getProbability( double x );
+
+	/**
+	 * Get probability of a boxed value
+	 * 
+	 * @param  x - value
+	 * @return a number of probability
+	 */
+	public Double getProbability( Number x ) {
+		return this.getProbability( x.doubleValue() );
+	}
 }
@@ -23,6 +23,16 @@ public class Evaluator implements OptionHandler {
 	private Classifier classifier;
 	/** Train and test sets */
 	private TrainTestSets tts;
+	/** Whether IBk shares neighbor lists across folds */
+	private boolean neighborCache = false;
+	/** Length of the shared neighbor lists, or 0 for the default */
+	private int kMax = 0;
+	/** Smallest k of a k sweep, or 0 if there is no sweep */
+	private int sweepMin = 0;
+	/** Largest k of a k sweep */
+	private int sweepMax = 0;
+	/** Whether to retrain every fold even if the classifier can combine partition counts */
+	private boolean retrainFolds = false;
 
 	/**
 	 * Default constructor
@@ -72,6 +82,29 @@ public class Evaluator implements OptionHandler {
 			tts.getTrainingSet().setRandom(this.random);
 			// K-fold cross validation
 			tts.getTrainingSet().setFolds(folds); // Do partitioning
+
+			// Search neighbors once for all folds
+			if( this.neighborCache && this.classifier instanceof IBk ) {
+				IBk ibk = (IBk) this.classifier;
+				int length = this.kMax > 0 ? Math.max(this.kMax, ibk.getK()) : NeighborCache.getDefaultKMax(ibk.getK());
+				NeighborCache cache = new NeighborCache(ibk, tts.getTrainingSet(), length);
+				for(int i = 0; i < folds; i++) {
+					performance.add( cache.evaluate(i, ibk.getK()) );
+				}
+				return performance;
+			}
+
+			// Count each partition once and combine the counts of the others for every fold
+			FoldTrainable trainer = this.classifier instanceof FoldTrainable && !this.retrainFolds ? (FoldTrainable) this.classifier.clone() : null;
+			if( trainer != null && trainer.trainFolds(tts.getTrainingSet()) ) {
+				for(int i = 0; i < folds; i++) {
+					TrainTestSets partitionedDataset = tts.getTrainingSet().getCVSets(i);
+					Performance testPerformance = trainer.getFoldClassifier(i).classify( partitionedDataset.getTestingSet() );
+					performance.add( testPerformance );
+				}
+				return performance;
+			}
+
 			for(int i = 0; i < folds; i++) {
 				TrainTestSets partitionedDataset = tts.getTrainingSet().getCVSets(i);
 				// Clone
@@ -87,6 +120,77 @@ public class Evaluator implements OptionHandler {
 		return performance;
 	}
 	
+	/**
+	 * Evaluate IBk for every k of the sweep with a single neighbor search per query
+	 * If both train and test sets are provided, then do simple evaluation
+	 * If only train set is provided, then do k-fold cross validation
+	 * 
+	 * @return the Performance object of the evaluation for each k of the sweep
+	 * @throws Exception - if the classifier is not IBk
+	 */
+	public Performance[] evaluateSweep() throws Exception {
+		if( !(this.classifier instanceof IBk) ) {
+			throw new Exception("A k sweep requires IBk.");
+		}
+		IBk ibk = (IBk) this.classifier;
+
+		// Simple evaluation
+		if( tts.getTestingSet().name != null ) {
+			ibk.train(tts.getTrainingSet());
+			return ibk.classify( tts.getTestingSet(), this.sweepMin, this.sweepMax );
+		}
+
+		Performance[] performances = new Performance[this.sweepMax - this.sweepMin + 1];
+		for(int i = 0; i < performances.length; i++) {
+			performances[i] = new Performance( tts.getTrainingSet().getAttributes() );
+		}
+
+		// K-fold cross validation
+		tts.getTrainingSet().setRandom(this.random);
+		tts.getTrainingSet().setFolds(folds);
+		NeighborCache cache = null;
+		if( this.neighborCache ) {
+			int length = Math.max(this.sweepMax, this.kMax > 0 ? this.kMax : NeighborCache.getDefaultKMax(this.sweepMax));
+			cache = new NeighborCache(ibk, tts.getTrainingSet(), length);
+		}
+
+		for(int i = 0; i < folds; i++) {
+			Performance[] testPerformances;
+			if( cache != null ) {
+				testPerformances = cache.evaluate(i, this.sweepMin, this.sweepMax);
+			}
+			else {
+				TrainTestSets partitionedDataset = tts.getTrainingSet().getCVSets(i);
+				IBk clf = (IBk) ibk.clone();
+				clf.train( partitionedDataset.getTrainingSet() );
+				testPerformances = clf.classify( partitionedDataset.getTestingSet(), this.sweepMin, this.sweepMax );
+			}
+			for(int j = 0; j < performances.length; j++) {
+				performances[j].add( testPerformances[j] );
+			}
+		}
+
+		return performances;
+	}
+
+	/**
+	 * Return whether a k sweep was requested
+	 * 
+	 * @return true if -ksweep was given
+	 */
+	public boolean isSweep() {
+		return this.sweepMin > 0;
+	}
+
+	/**
+	 * Get the smallest k of the sweep
+	 * 
+	 * @return the smallest k
+	 */
+	public int getSweepMin() {
+		return this.sweepMin;
+	}
+
 	/**
 	 * Get seed number
 	 * 
@@ -108,6 +212,29 @@ public class Evaluator implements OptionHandler {
 				this.folds = Integer.parseInt( args[i+1] );
 			if(args[i].equals("-s") && args.length > i+1)
 				this.setSeed( Long.parseLong(args[i+1]) );
+			if(args[i].equals("-neighborcache"))
+				this.neighborCache = true;
+			if(args[i].equals("-kmax") && args.length > i+1)
+				this.kMax = Integer.parseInt( args[i+1] );
+			if(args[i].equals("-ksweep") && args.length > i+1)
+				this.setSweep( args[i+1] );
+			if(args[i].equals("-retrainfolds"))
+				this.retrainFolds = true;
+		}
+	}
+
+	/**
+	 * Set the range of a k sweep
+	 * 
+	 * @param  range - "min:max", or "max" for 1 to max
+	 * @throws Exception - if the range is invalid
+	 */
+	public void setSweep( String range ) throws Exception {
+		int colon = range.indexOf(':');
+		this.sweepMin = colon < 0 ? 1 : Integer.parseInt( range.substring(0, colon) );
+		this.sweepMax = Integer.parseInt( range.substring(colon + 1) );
+		if( this.sweepMin < 1 || this.sweepMax < this.sweepMin ) {
+			throw new Exception("Invalid k sweep: " + range);
 		}
 	}
 
@@ -3,33 +3,146 @@
  * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
  */
 
-import java.util.Collections;
-import java.util.ArrayList;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.AbstractList;
+import java.util.RandomAccess;
 
 /**
  * Stores the attribute values of an example.
  * Numeric values are stored as is.
  * Nominal values are stored as Doubles and are indices of the value in the attributes structure.
+ * Values are kept in a primitive double array; getDouble and set(int,double) avoid boxing,
+ * while the List methods are kept for compatibility.
  *
  * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
  * @since 	2018-09-18
  */
-public class Example extends ArrayList<Double> {
-	
+public class Example extends AbstractList<Double> implements RandomAccess, Serializable {
+	private static final long serialVersionUID = 1L;
+	/** the attribute values of this example */
+	protected double[] values;
+	/** the number of values added to this example */
+	protected int size;
+
 	/**
 	 * Default constructor
 	 */
 	public Example() {
-
+		this(10);
 	}
 
 	/**
 	 * Explicit constructor.
 	 * Constructs an Example with n values, where n is greater or equal to two.
-	 * 
+	 *
 	 * @param n - the number of values of this example
 	 */
 	public Example( int n ) {
-		super(n);
+		this.values = new double[n];
+		this.size = 0;
+	}
+
+	/**
+	 * Explicit constructor.
+	 * Constructs an Example holding the given values without copying them.
+	 *
+	 * @param values - the values of this example
+	 */
+	public Example( double[] values ) {
+		this.values = values;
+		this.size = values.length;
+	}
+
+	/**
+	 * Appends a value to this example.
+	 *
+	 * @param  value - the value to be appended
+	 * @return true
+	 */
+	public boolean add( double value ) {
+		if( size == values.length ) {
+			values = Arrays.copyOf(values, Math.max(2, size * 2));
+		}
+		values[size++] = value;
+		return true;
+	}
+
+	/**
+	 * Appends a value to this example.
+	 *
+	 * @param  value - the value to be appended
+	 * @return true
+	 */
+	public boolean add( Double value ) {
+		return add( value.doubleValue() );
+	}
+
+	/**
+	 * Returns the ith value of this example without boxing.
+	 *
+	 * @param  i - the index of the value
+	 * @return the ith value
+	 */
+	public double getDouble( int i ) {
+		return values[i];
+	}
+
+	/**
+	 * Sets the ith value of this example without boxing.
+	 *
+	 * @param i - the index of the value
+	 * @param value - the new value
+	 */
+	public void set( int i, double value ) {
+		values[i] = value;
+	}
+
+	/**
+	 * Returns the ith value of this example.
+	 *
+	 * @param  i - the index of the value
+	 * @return the ith value
+	 */
+	public Double get( int i ) {
+		if( i >= size() ) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+		}
+		return getDouble(i);
+	}
+
+	/**
+	 * Sets the ith value of this example.
+	 *
+	 * @param  i - the index of the value
+	 * @param  value - the new value
+	 * @return the previous value
+	 */
+	public Double set( int i, Double value ) {
+		Double previous = get(i);
+		set(i, value.doubleValue());
+		return previous;
+	}
+
+	/**
+	 * Returns the number of values of this example.
+	 *
+	 * @return the number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a copy of the values of this example.
+	 *
+	 * @return a new array containing the values
+	 */
+	public double[] toDoubleArray() {
+		double[] copy = new double[size()];
+		for(int i = 0; i < copy.length; i++) {
+			copy[i] = getDouble(i);
+		}
+		return copy;
 	}
 }
@@ -3,19 +3,39 @@
  * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
  */
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Scanner;
 import java.util.Collections;
 import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.RandomAccess;
 
 /**
  * Stores examples for data sets for machine learning.
+ * An Examples object either holds its own examples, reads them from an
+ * OffHeapStore, or is a read-only view of selected examples of another Examples object.
  *
  * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
  * @since 	2018-09-18
  */
-public class Examples extends ArrayList<Example> {
+public class Examples extends AbstractList<Example> implements RandomAccess, Serializable {
+	private static final long serialVersionUID = 1L;
 	/** the attributes structure for these examples */
 	private Attributes attributes;
+	/** the examples, or null if this is a view or off heap */
+	private ArrayList<Example> rows;
+	/** the off-heap store holding the examples, or null */
+	private OffHeapStore store;
+	/** the viewed examples, or null if this is not a view */
+	private Examples parent;
+	/** positions in the parent of the examples in this view */
+	private int[] index;
 
 	/**
 	 * Explicit constructor.
@@ -25,6 +45,144 @@ public class Examples extends ArrayList<Example> {
 	public Examples( Attributes attributes ) {
 		super();
 		this.attributes = attributes;
+		this.rows = new ArrayList<Example>();
+	}
+
+	/**
+	 * Explicit constructor for examples held in an off-heap store.
+	 * Examples are returned as views of the store's rows created on demand.
+	 * 
+	 * @param attributes - the attributes for this set of examples
+	 * @param store - the store holding the examples
+	 */
+	public Examples( Attributes attributes, OffHeapStore store ) {
+		super();
+		this.attributes = attributes;
+		this.store = store;
+	}
+
+	/**
+	 * Explicit constructor for a view.
+	 * The view shares the examples of the parent and does not copy them.
+	 * 
+	 * @param parent - the examples to be viewed
+	 * @param index - the positions in the parent of the examples in this view
+	 */
+	public Examples( Examples parent, int[] index ) {
+		super();
+		this.attributes = parent.attributes;
+
+		// Views of views refer to the underlying examples directly
+		if( parent.parent != null ) {
+			int[] composed = new int[index.length];
+			for(int i = 0; i < index.length; i++) {
+				composed[i] = parent.index[index[i]];
+			}
+			index = composed;
+			parent = parent.parent;
+		}
+
+		this.parent = parent;
+		this.index = index;
+	}
+
+	/**
+	 * Serializes off-heap and view examples as a list of plain examples,
+	 * since stores and parent lists are not serialized with them.
+	 *
+	 * @return this list, or a copy holding its rows
+	 */
+	private Object writeReplace() {
+		if( this.store == null && this.parent == null ) return this;
+
+		Examples copy = new Examples(this.attributes);
+		for(int i = 0; i < this.size(); i++) {
+			copy.add(this.get(i));
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the ith example.
+	 * 
+	 * @param  i - the position of the example
+	 * @return the ith example
+	 */
+	public Example get( int i ) {
+		if( parent != null ) return parent.get(index[i]);
+		if( store != null ) {
+			if( i >= store.size() ) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + store.size());
+			return new OffHeapExample(store, i);
+		}
+		return rows.get(i);
+	}
+
+	/**
+	 * Replaces the ith example.
+	 * 
+	 * @param  i - the position of the example
+	 * @param  example - the new example
+	 * @return the previous example
+	 */
+	public Example set( int i, Example example ) {
+		if( parent != null ) throw new UnsupportedOperationException("Views of examples are read-only");
+		if( store != null ) throw new UnsupportedOperationException("Off-heap examples can only be appended");
+		return rows.set(i, example);
+	}
+
+	/**
+	 * Inserts an example at the specified position.
+	 * Off-heap examples can only be appended, which copies the values into the store.
+	 * 
+	 * @param i - the position of the example
+	 * @param example - the example to be added
+	 */
+	public void add( int i, Example example ) {
+		if( parent != null ) throw new UnsupportedOperationException("Views of examples are read-only");
+		if( store != null ) {
+			if( i != store.size() ) throw new UnsupportedOperationException("Off-heap examples can only be appended");
+			store.add(example);
+		}
+		else {
+			rows.add(i, example);
+		}
+		modCount++;
+	}
+
+	/**
+	 * Removes the ith example.
+	 * 
+	 * @param  i - the position of the example
+	 * @return the removed example
+	 */
+	public Example remove( int i ) {
+		if( parent != null ) throw new UnsupportedOperationException("Views of examples are read-only");
+		if( store != null ) throw new UnsupportedOperationException("Off-heap examples can only be appended");
+		modCount++;
+		return rows.remove(i);
+	}
+
+	/**
+	 * Returns the number of examples.
+	 * 
+	 * @return the number of examples
+	 */
+	public int size() {
+		if( parent != null ) return index.length;
+		if( store != null ) return store.size();
+		return rows.size();
+	}
+
+	/**
+	 * Returns the position of the ith example in the underlying examples.
+	 * For examples that are not a view, this is i.
+	 * 
+	 * @param  i - the position of the example
+	 * @return the position in the underlying examples
+	 */
+	public int getRow( int i ) {
+		if( parent != null ) return index[i];
+		return i;
 	}
 
 	/**
@@ -81,35 +239,70 @@ public class Examples extends ArrayList<Example> {
 	 * @return a string representation of this Examples object
 	 */
 	public String toString() {
-		StringBuilder examplesString = new StringBuilder("@examples" + "\n\n");
+		StringWriter writer = new StringWriter();
+		try {
+			writeTo(writer);
+		} // Try
+		catch( IOException e ) {
+			System.out.println( e.getMessage() );
+			e.printStackTrace();
+		} // Catch
+
+		return writer.toString();
+	}
+
+	/**
+	 * Writes the string representation of this Examples object row by row.
+	 * Each row is built in a reused buffer, so memory does not grow with the number of examples.
+	 * 
+	 * @param  writer - the writer to which the examples are written
+	 * @throws IOException - if the writer fails
+	 */
+	public void writeTo( Writer writer ) throws IOException {
+		writer.write("@examples" + "\n\n");
+		StringBuilder row = new StringBuilder();
 
 		// For all examples
 		for( Example example : this ) {
+			row.setLength(0);
+
 			// For each attribute of an example
 			for( int i = 0; i < example.size(); i++ ) {
 
 				// When the value is not the first attribute
 				if( i > 0 ) {
-					examplesString.append(" ");
+					row.append(' ');
 				}
 
 				// Numeric
 				if( attributes.get(i) instanceof NumericAttribute ) {
-					examplesString.append(Double.toString(example.get(i)));
+					row.append(example.getDouble(i));
 				}
 
 				// Nominal
 				else {
 					// To get value, we need index of the value and the nominal type
-					int index = example.get(i).intValue();
+					int index = (int) example.getDouble(i);
 					NominalAttribute nomAtt = (NominalAttribute) attributes.get(i);
-					examplesString.append(nomAtt.getValue(index));
-			  }
+					row.append(nomAtt.getValue(index));
+				}
 			}
 
-			examplesString.append("\n");
+			row.append('\n');
+			writer.append(row);
 		}
+	}
 
-		return examplesString.toString();
+	/**
+	 * Writes the string representation of this Examples object.
+	 * The stream is flushed but not closed.
+	 * 
+	 * @param  out - the stream to which the examples are written
+	 * @throws IOException - if the stream fails
+	 */
+	public void writeTo( OutputStream out ) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out), 1 << 16);
+		writeTo(writer);
+		writer.flush();
 	}
-}
\ No newline at end of file
+}
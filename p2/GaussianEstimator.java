@@ -5,14 +5,19 @@
 
 /**
  * Gaussian Estimator Class for NumericAttribute
+ * The moments are updated with Welford's method, which stays accurate when the mean is large
+ * compared to the spread, and two estimators merge with the pairwise update of Chan et al.
  *
  * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
  * @since 	2018-10-15
  */
 public class GaussianEstimator extends Estimator {
-	protected Double sum = 0.0;
-	protected Double sumsqr = 0.0;
-	protected final static Double oneOverSqrt2PI = 1.0/Math.sqrt(2.0*Math.PI);
+	private static final long serialVersionUID = 1L;
+	/* running mean of the samples */
+	protected double mean = 0.0;
+	/* running sum of squared differences from the mean */
+	protected double m2 = 0.0;
+	protected final static double oneOverSqrt2PI = 1.0/Math.sqrt(2.0*Math.PI);
 
 	/**
 	 * Default constructor.
@@ -27,10 +32,61 @@ public class GaussianEstimator extends Estimator {
 	 * @param  x - value
 	 * @throws Exception 
 	 */
-	public void add( Number x ) throws Exception {
-		sum += x.doubleValue();
-		sumsqr += x.doubleValue() * x.doubleValue();
+	public void add( double x ) throws Exception {
 		this.n++;
+		double delta = x - mean;
+		mean += delta / (double) n;
+		m2 += delta * (x - mean);
+	}
+
+	/**
+	 * Remove a value from Gaussian Estimator by reversing Welford's update
+	 * 
+	 * @param  x - a value that was added
+	 * @throws Exception - if the estimator has no samples
+	 */
+	public void remove( double x ) throws Exception {
+		if( this.n == 0 ) {
+			throw new Exception("Cannot remove a value from an empty estimator");
+		}
+		if( this.n == 1 ) {
+			this.n = 0;
+			mean = 0.0;
+			m2 = 0.0;
+			return;
+		}
+
+		double delta = x - mean;
+		this.n--;
+		mean -= delta / (double) n;
+		m2 = Math.max(0.0, m2 - delta * (x - mean));
+	}
+
+	/**
+	 * Add the moments of another Gaussian estimator
+	 * 
+	 * @param  other - a Gaussian estimator
+	 * @throws Exception - if the other estimator is not Gaussian
+	 */
+	public void merge( Estimator other ) throws Exception {
+		if( !(other instanceof GaussianEstimator) ) {
+			throw new Exception("Cannot merge a Gaussian estimator with a different estimator");
+		}
+
+		GaussianEstimator gaussian = (GaussianEstimator) other;
+		if( gaussian.n == 0 ) return;
+		if( this.n == 0 ) {
+			this.n = gaussian.n;
+			this.mean = gaussian.mean;
+			this.m2 = gaussian.m2;
+			return;
+		}
+
+		double total = (double) this.n + (double) gaussian.n;
+		double delta = gaussian.mean - mean;
+		mean += delta * gaussian.n / total;
+		m2 += gaussian.m2 + delta * delta * ((double) this.n * gaussian.n / total);
+		this.n += gaussian.n;
 	}
 
 	/**
@@ -38,17 +94,17 @@ public class GaussianEstimator extends Estimator {
 	 * 
 	 * @return a number indicating mean of distribution
 	 */
-	public Double getMean() {
-		return sum / (double) n;
+	public double getMean() {
+		return n > 0 ? mean : Double.NaN;
 	}
 
 	/**
 	 * Get variance of this estimator
 	 * 
-	 * @return a number indicating variance
+	 * @return a number indicating variance, or NaN with fewer than two samples
 	 */
-	public Double getVariance() {
-		return (sumsqr - (Math.pow(sum, 2) / (n*1.0) )) / (double) (n - 1);
+	public double getVariance() {
+		return n > 1 ? m2 / (double) (n - 1) : Double.NaN;
 	}
 
 	/**
@@ -57,7 +113,9 @@ public class GaussianEstimator extends Estimator {
 	 * @param  x - value
 	 * @return - probability of this estimator
 	 */
-	public Double getProbability( Number x ) {
-		return (oneOverSqrt2PI * (1.0/Math.sqrt(getVariance()))) * Math.exp( -1.0 * (Math.pow(x.doubleValue() - getMean(),2) / (2*getVariance()) ) );
+	public double getProbability( double x ) {
+		double variance = getVariance();
+		double difference = x - getMean();
+		return (oneOverSqrt2PI / Math.sqrt(variance)) * Math.exp( -(difference * difference) / (2.0 * variance) );
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+/*
+ * HammingSearch.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Finds nearest neighbors in a training set with only nominal attributes.
+ * Every example is encoded once as packed one-hot bits, one bit per value of each attribute,
+ * so two examples differ in exactly two bits per mismatched attribute and their distance
+ * is half the bit count of their exclusive or, computed a 64-bit word at a time.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-30
+ */
+public class HammingSearch extends NeighborSearch {
+	/** the attributes encoded, excluding the class */
+	private int[] dims;
+	/** the first bit of each encoded attribute */
+	private int[] offsets;
+	/** the number of 64-bit words of an encoded example */
+	private int words;
+	/** the encoded examples, row by row */
+	private LongBuffer bits;
+	/** the class labels of the examples */
+	private IntBuffer labels;
+
+	/**
+	 * Encodes a training set.
+	 *
+	 * @param  dataset - the training set, which must have only nominal attributes
+	 * @throws Exception - if the training set has numeric attributes
+	 */
+	public void build( DataSet dataset ) throws Exception {
+		super.build(dataset);
+		Attributes attributes = dataset.getAttributes();
+
+		dims = new int[nominal.length - 1];
+		offsets = new int[dims.length];
+		int width = 0;
+		for(int i = 0, d = 0; i < nominal.length; i++) {
+			if( i == classIndex ) continue;
+			if( !nominal[i] ) {
+				throw new Exception("A Hamming index requires nominal attributes: " + attributes.get(i).getName());
+			}
+			dims[d] = i;
+			offsets[d++] = width;
+			width += attributes.get(i).size();
+		}
+		words = Math.max(1, (width + 63) >>> 6);
+
+		Examples examples = dataset.getExamples();
+		int n = examples.size();
+		long[] encoded = new long[n * words];
+		int[] classes = new int[n];
+		for(int r = 0; r < n; r++) {
+			Example example = examples.get(r);
+			this.encode(example, encoded, r * words);
+			classes[r] = this.getLabel(example);
+		}
+		bits = LongBuffer.wrap(encoded);
+		labels = IntBuffer.wrap(classes);
+	}
+
+	/**
+	 * Sets the one-hot bits of an example.
+	 *
+	 * @param example - the example
+	 * @param target - the array receiving the bits, which must be cleared
+	 * @param base - the first word of the example in the array
+	 */
+	private void encode( Example example, long[] target, int base ) {
+		for(int d = 0; d < dims.length; d++) {
+			int bit = offsets[d] + (int) example.getDouble(dims[d]);
+			target[base + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Writes the structures built over the training set, so they can be read back without rebuilding.
+	 *
+	 * @param  writer - the writer of a saved IBk
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void write( IBkWriter writer ) throws IOException {
+		writer.putInts(dims);
+		writer.putInts(offsets);
+		writer.putInt(words);
+		writer.putLongs(bits);
+		writer.putInts(labels);
+	}
+
+	/**
+	 * Maps the structures written by write over the same training set.
+	 *
+	 * @param  reader - the reader of a saved IBk
+	 * @param  dataset - the scaled training set
+	 * @throws Exception - if the file cannot be read
+	 */
+	public void read( IBkReader reader, DataSet dataset ) throws Exception {
+		this.setDataSet(dataset);
+		dims = reader.getInts();
+		offsets = reader.getInts();
+		words = reader.getInt();
+		bits = reader.mapLongs();
+		labels = reader.mapInts();
+	}
+
+	/**
+	 * Offers the nearest training examples of a query to a heap.
+	 *
+	 * @param  query - a query example
+	 * @param  heap - the heap receiving the neighbors
+	 * @throws Exception
+	 */
+	public void search( Example query, NeighborHeap heap ) throws Exception {
+		long[] q = new long[words];
+		this.encode(query, q, 0);
+
+		// Read a built index from its arrays, which is faster than through the buffers
+		if( bits.hasArray() ) {
+			long[] encoded = bits.array();
+			int[] classes = labels.array();
+			for(int r = 0, base = 0; r < classes.length; r++, base += words) {
+				// Count mismatched bits, stopping once the example cannot be a neighbor
+				double limit = 2.0 * heap.bound();
+				int count = 0;
+				for(int w = 0; w < words && count <= limit; w++) {
+					count += Long.bitCount(q[w] ^ encoded[base + w]);
+				}
+				if( count <= limit ) {
+					heap.offer(count >>> 1, classes[r], r);
+				}
+			}
+			return;
+		}
+
+		int n = labels.limit();
+		for(int r = 0, base = 0; r < n; r++, base += words) {
+			double limit = 2.0 * heap.bound();
+			int count = 0;
+			for(int w = 0; w < words && count <= limit; w++) {
+				count += Long.bitCount(q[w] ^ bits.get(base + w));
+			}
+			if( count <= limit ) {
+				heap.offer(count >>> 1, labels.get(r), r);
+			}
+		}
+	}
+}
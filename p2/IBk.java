@@ -5,6 +5,8 @@
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
 
 /**
  * K-nearest neightbor Classifier Class
@@ -13,12 +15,37 @@ import java.util.ArrayList;
  * @since 	2018-10-15
  */
 public class IBk extends Classifier implements Serializable, OptionHandler {
+	private static final long serialVersionUID = 1L;
 	/* the training dataset */
 	protected DataSet dataset;
 	/* scaler to make all attribute value to be within [0,1] */
 	protected Scaler scaler;
 	/* number of k for k-nearest neighbor classifier */
 	protected int k = 3;
+	/* number of queries searched together when classifying a dataset */
+	protected static final int BATCH_SIZE = 64;
+	/* number of kept examples indexed together while condensing */
+	protected static final int CONDENSE_BLOCK = 1024;
+	/* smallest number of training examples in a shard */
+	protected static final int MIN_SHARD_SIZE = 1024;
+	/* number of threads searching for neighbors, or 0 to batch on all cores without shards */
+	protected int threads = 0;
+	/* searches over shards of the training dataset, or null if it is not sharded */
+	protected NeighborSearch[] shards;
+	/* index of the first training example of each shard */
+	protected int[] shardStarts;
+	/* whether to remove training examples misclassified by their neighbors (Wilson's editing) */
+	protected boolean edit = false;
+	/* whether to keep only training examples needed to classify the rest (Hart's condensing) */
+	protected boolean condense = false;
+	/* number of training examples given to train */
+	protected int trainingSize = 0;
+	/* number of training examples kept after editing and condensing */
+	protected int keptSize = 0;
+	/* search for the nearest neighbors in the training dataset */
+	protected NeighborSearch search;
+	/* name of the index used to search for neighbors */
+	protected String index = "auto";
 
 	/**
 	 * Default constructor
@@ -50,16 +77,171 @@ public class IBk extends Classifier implements Serializable, OptionHandler {
 	public Performance classify( DataSet dataset ) throws Exception {
 		Performance performance = new Performance(dataset.getAttributes());
 		int classIndex = dataset.getAttributes().getClassIndex();
+		Examples examples = dataset.getExamples();
 
-		for(Example example : dataset.getExamples()) {
-			int actual = example.get( classIndex ).intValue();
-			double[] predictions = this.getDistribution( example );
+		// Scale all queries, then search for their neighbors in batches
+		Example[] queries = new Example[examples.size()];
+		NeighborHeap[] heaps = new NeighborHeap[queries.length];
+		for(int q = 0; q < queries.length; q++) {
+			queries[q] = this.scale( examples.get(q) );
+			heaps[q] = new NeighborHeap(this.k);
+		}
+		this.search(queries, heaps);
+
+		for(int q = 0; q < queries.length; q++) {
+			int actual = (int) examples.get(q).getDouble( classIndex );
+			double[] predictions = this.getDistribution( heaps[q] );
 			performance.add( actual, predictions );
 		}
 
 		return performance;
 	}
-	
+
+	/**
+	 * Classify all examples in the given dataset for every k in a range at once
+	 * The kMax nearest neighbors of each example are searched once and sorted,
+	 * and the votes of each prefix of that list give the prediction for each k
+	 * 
+	 * @param  dataset   - a DataSet object
+	 * @param  kMin      - the smallest k
+	 * @param  kMax      - the largest k
+	 * @return           - a performance object for each k from kMin to kMax
+	 * @throws Exception 
+	 */
+	public Performance[] classify( DataSet dataset, int kMin, int kMax ) throws Exception {
+		Performance[] performances = new Performance[kMax - kMin + 1];
+		for(int i = 0; i < performances.length; i++) {
+			performances[i] = new Performance(dataset.getAttributes());
+		}
+		int classIndex = dataset.getAttributes().getClassIndex();
+		Examples examples = dataset.getExamples();
+
+		Example[] queries = new Example[examples.size()];
+		NeighborHeap[] heaps = new NeighborHeap[queries.length];
+		for(int q = 0; q < queries.length; q++) {
+			queries[q] = this.scale( examples.get(q) );
+			heaps[q] = new NeighborHeap(kMax);
+		}
+		this.search(queries, heaps);
+
+		int[] labels = new int[kMax];
+		double[] votes = new double[ dataset.getAttributes().getClassAttribute().size() ];
+		for(int q = 0; q < queries.length; q++) {
+			heaps[q].sort();
+			for(int j = 0; j < heaps[q].size(); j++) {
+				labels[j] = heaps[q].getLabel(j);
+			}
+			int actual = (int) examples.get(q).getDouble( classIndex );
+			addVotes(performances, kMin, actual, labels, heaps[q].size(), votes);
+		}
+
+		return performances;
+	}
+
+	/**
+	 * Add the prediction for every k in a range from the sorted labels of the nearest neighbors
+	 * 
+	 * @param performances - a performance object for each k from kMin
+	 * @param kMin         - the smallest k
+	 * @param actual       - the index of the actual class
+	 * @param labels       - the class labels of the neighbors from nearest to farthest
+	 * @param count        - the number of neighbors, which may be fewer than the largest k
+	 * @param votes        - an array for counting votes, one per class label
+	 */
+	protected static void addVotes( Performance[] performances, int kMin, int actual, int[] labels, int count, double[] votes ) {
+		Arrays.fill(votes, 0.0);
+		for(int j = 0; j < kMin - 1 + performances.length; j++) {
+			if( j < count ) {
+				votes[ labels[j] ] += 1.0;
+			}
+			if( j + 1 >= kMin ) {
+				performances[j + 1 - kMin].add( actual, votes );
+			}
+		}
+	}
+
+	/**
+	 * Search for the neighbors of many queries
+	 * Batches of queries are searched together, and the batches run on all threads
+	 * 
+	 * @param  queries   - scaled query examples
+	 * @param  heaps     - the heap receiving the neighbors of each query
+	 * @throws Exception 
+	 */
+	protected void search( Example[] queries, NeighborHeap[] heaps ) throws Exception {
+		ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for(int start = 0; start < queries.length; start += BATCH_SIZE) {
+			final int from = start;
+			final int to = Math.min(start + BATCH_SIZE, queries.length);
+			tasks.add(() -> {
+				this.search(queries, heaps, from, to);
+				return null;
+			});
+		}
+
+		// A single batch stays on this thread
+		if( tasks.size() == 1 ) {
+			tasks.get(0).call();
+			return;
+		}
+		Utils.invokeAll(this.threads, tasks);
+	}
+
+	/**
+	 * Search for the neighbors of a batch of queries in every shard
+	 * 
+	 * @param  queries   - scaled query examples
+	 * @param  heaps     - the heap receiving the neighbors of each query
+	 * @param  from      - the first query of the batch
+	 * @param  to        - the end of the batch
+	 * @throws Exception 
+	 */
+	private void search( Example[] queries, NeighborHeap[] heaps, int from, int to ) throws Exception {
+		if( this.shards == null ) {
+			this.search.search(queries, heaps, from, to);
+			return;
+		}
+
+		NeighborHeap[] local = new NeighborHeap[heaps.length];
+		for(int s = 0; s < this.shards.length; s++) {
+			for(int q = from; q < to; q++) {
+				local[q] = new NeighborHeap(heaps[q].capacity());
+			}
+			this.shards[s].search(queries, local, from, to);
+			for(int q = from; q < to; q++) {
+				heaps[q].merge(local[q], this.shardStarts[s]);
+			}
+		}
+	}
+
+	/**
+	 * Search for the neighbors of one query, scanning the shards concurrently
+	 * 
+	 * @param  query     - a scaled query example
+	 * @param  heap      - the heap receiving the neighbors
+	 * @throws Exception 
+	 */
+	protected void search( Example query, NeighborHeap heap ) throws Exception {
+		if( this.shards == null ) {
+			this.search.search(query, heap);
+			return;
+		}
+
+		ArrayList<Callable<NeighborHeap>> tasks = new ArrayList<Callable<NeighborHeap>>();
+		for(NeighborSearch shard : this.shards) {
+			tasks.add(() -> {
+				NeighborHeap local = new NeighborHeap(heap.capacity());
+				shard.search(query, local);
+				return local;
+			});
+		}
+
+		// Merge in shard order, which gives the same neighbors as a sequential scan
+		ArrayList<NeighborHeap> results = Utils.invokeAll(this.threads, tasks);
+		for(int s = 0; s < results.size(); s++) {
+			heap.merge(results.get(s), this.shardStarts[s]);
+		}
+	}
 
 	/**
 	 * Classify class label by this classifier given an example
@@ -79,7 +261,11 @@ public class IBk extends Classifier implements Serializable, OptionHandler {
 	 */
 	public Classifier clone() {
 		IBk ibk = new IBk();
-		ibk.setK(this.k); // Clear all other variables except k value
+		ibk.setK(this.k); // Clear all other variables except k value and index
+		ibk.setIndex(this.index);
+		ibk.setThreads(this.threads);
+		ibk.setEdit(this.edit);
+		ibk.setCondense(this.condense);
 
 		return ibk;
 	}
@@ -92,74 +278,44 @@ public class IBk extends Classifier implements Serializable, OptionHandler {
 	 * @throws Exception 
 	 */
 	public double[] getDistribution( Example query ) throws Exception {
-		// Scale the given example
-		Example scaledQuery = null; // Initial by assuming that it is nominal attribute
-		if( this.dataset.getHasNumericAttributes() ) {
-			scaledQuery = this.scaler.scale(query);
-		}
-		else {
-			scaledQuery = query;
-		}
-
-		// Create 2d array for store distance and label for each k-nearest
-		double[][] kNearestDistances = new double[this.k][2]; // store [k][distance,label]
-		// Initial all distance with possible maximum double
-		for(int i = 0; i < kNearestDistances.length; i++) {
-			kNearestDistances[i][0] = Double.MAX_VALUE;
-		}
-
-		// Find k-nearest distance between the given query and all examples in the dataset
-		for(Example example : this.dataset.getExamples()) {
-			double distance = 0.0;
-
-			// Compute distance between current example and all examples in the dataset
-			for(int i = 0; i < example.size(); i++) {
-				// Compute only other attibutes than class label
-				if( i != this.dataset.getAttributes().getClassIndex() ) {
-					// If nominal attribute mismatched, increase distance by 1.0
-					if( this.dataset.getAttributes().get(i) instanceof NominalAttribute ) {
-						if( Double.compare(scaledQuery.get(i), example.get(i)) != 0 ) {
-							distance += 1.0;
-						}
-					}
+		// Keep the k nearest neighbors in a max-heap of squared distances
+		NeighborHeap heap = new NeighborHeap(this.k);
+		this.search(this.scale(query), heap);
 
-					// If numeric attribute mismatched, increase distance by squared differences
-					else {
-						distance += Math.pow( scaledQuery.get(i) - example.get(i), 2 );
-					}
-				}
-			}
-
-			// Take square root to get Eucledien distance
-			distance = Math.sqrt(distance);
-
-			double maxDistance = -1.0;
-			int maxIndex = -1;
-
-			// Find the current max distance in the kNN array
-			for(int i = 0; i < kNearestDistances.length; i++) {
-				if( kNearestDistances[i][0] > maxDistance ) {
-					maxDistance = kNearestDistances[i][0];
-					maxIndex = i;
-				}
-			}
+		return this.getDistribution(heap);
+	}
 
-			// Update kNearestDistances array
-			// if the current distance is less than current max distance
-			// then update current distance to the array at current max index
-			if( distance < maxDistance ) {
-				kNearestDistances[maxIndex][0] = distance;
-				kNearestDistances[maxIndex][1] = example.get( this.dataset.getAttributes().getClassIndex() );
-			}
+	/**
+	 * Scale an example the same way as the training dataset
+	 * 
+	 * @param  example   - an example
+	 * @return           - a scaled copy of the example, or the example itself if there are no numeric attributes
+	 * @throws Exception 
+	 */
+	protected Example scale( Example example ) throws Exception {
+		if( this.dataset.getHasNumericAttributes() ) {
+			return this.scaler.scale(example);
 		}
+		return example;
+	}
 
+	/**
+	 * Get distribution of predicted class labels from the nearest neighbors
+	 * 
+	 * @param  heap      - the nearest neighbors of an example
+	 * @return           - a distribution of predicted class labels
+	 */
+	protected double[] getDistribution( NeighborHeap heap ) {
 		double[] classDistribution = new double[ this.dataset.getAttributes().getClassAttribute().size() ];
 
 		// Set distribution of predicted class labels given an example
-		for(int i = 0; i < kNearestDistances.length; i++) {
-			classDistribution[ (int)kNearestDistances[i][1] ] += 1.0;
+		for(int i = 0; i < heap.size(); i++) {
+			classDistribution[ heap.getLabel(i) ] += 1.0;
 		}
 
+		// Slots never filled by a neighbor vote for the first class
+		classDistribution[0] += heap.capacity() - heap.size();
+
 		return classDistribution;
 	}
 	
@@ -172,17 +328,299 @@ public class IBk extends Classifier implements Serializable, OptionHandler {
 		this.k = k;
 	}
 
+	/**
+	 * Get k value of k-nearest neighbor
+	 * 
+	 * @return k
+	 */
+	public int getK() {
+		return this.k;
+	}
+
+	/**
+	 * Set the number of threads searching for neighbors
+	 * With more than one thread, the training dataset is split into that many shards
+	 * 
+	 * @param threads - an integer value, or 0 to batch on all cores without shards
+	 */
+	public void setThreads( int threads ) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Set the index used to search for neighbors
+	 * 
+	 * @param index - auto, linear, hamming, kdtree or vptree
+	 */
+	public void setIndex( String index ) {
+		this.index = index;
+	}
+
+	/**
+	 * Create an empty search for the chosen index
+	 * The automatic index compares bit-packed examples when there are only nominal attributes
+	 * 
+	 * @param  dataset   - the training dataset
+	 * @return           - a NeighborSearch object
+	 * @throws Exception - if the index is unknown
+	 */
+	protected NeighborSearch createSearch( DataSet dataset ) throws Exception {
+		if( this.index.equals("auto") ) {
+			return dataset.getHasNumericAttributes() ? new LinearSearch() : new HammingSearch();
+		}
+		else if( this.index.equals("linear") ) {
+			return new LinearSearch();
+		}
+		else if( this.index.equals("hamming") ) {
+			return new HammingSearch();
+		}
+		else if( this.index.equals("kdtree") ) {
+			return new KDTree();
+		}
+		else if( this.index.equals("vptree") ) {
+			return new VPTree();
+		}
+		throw new Exception("Unknown index: " + this.index);
+	}
+
+	/**
+	 * Set whether to edit the training dataset with Wilson's edited nearest neighbor rule
+	 * 
+	 * @param edit - true to remove examples misclassified by their k nearest neighbors
+	 */
+	public void setEdit( boolean edit ) {
+		this.edit = edit;
+	}
+
+	/**
+	 * Set whether to condense the training dataset with Hart's condensed nearest neighbor rule
+	 * 
+	 * @param condense - true to keep only examples needed to classify the rest by 1-NN
+	 */
+	public void setCondense( boolean condense ) {
+		this.condense = condense;
+	}
+
 	/**
 	 * Set options for this classifier
+	 * Editing and condensing cannot be combined with the neighbor cache, whose lists are
+	 * searched over the full dataset rather than each fold's reduced training set
 	 * 
 	 * @param args[] - option arguments
+	 * @throws Exception - if the options conflict
 	 */
 	public void setOptions( String args[] ) throws Exception {
+		boolean neighborCache = false;
 		for( int i = 0; i < args.length; i++ ) {
 			if( args[i].equals("-k") && args.length > i+1 ) {
 				this.setK( Integer.parseInt(args[i+1]) );
 			}
+			else if( args[i].equals("-threads") && args.length > i+1 ) {
+				this.setThreads( Integer.parseInt(args[i+1]) );
+			}
+			else if( args[i].equals("-index") && args.length > i+1 ) {
+				this.setIndex( args[i+1] );
+			}
+			else if( args[i].equals("-edit") ) {
+				this.setEdit( true );
+			}
+			else if( args[i].equals("-condense") ) {
+				this.setCondense( true );
+			}
+			else if( args[i].equals("-neighborcache") ) {
+				neighborCache = true;
+			}
+		}
+
+		if( neighborCache && (this.edit || this.condense) ) {
+			throw new Exception("-edit and -condense cannot be used with -neighborcache");
+		}
+	}
+
+	/**
+	 * Create an empty search for reducing the training dataset
+	 * Every training example is a query, so with the automatic index a tree pays for its build:
+	 * a KD-tree for numeric attributes, a vantage-point tree for mixed ones, bits for nominal ones
+	 * 
+	 * @param  dataset   - the training dataset
+	 * @return           - a NeighborSearch object
+	 * @throws Exception - if the index is unknown
+	 */
+	private NeighborSearch createReductionSearch( DataSet dataset ) throws Exception {
+		if( !this.index.equals("auto") || !dataset.getHasNumericAttributes() ) {
+			return this.createSearch(dataset);
+		}
+
+		Attributes attributes = dataset.getAttributes();
+		for(int i = 0; i < attributes.size(); i++) {
+			if( i != attributes.getClassIndex() && attributes.get(i) instanceof NominalAttribute ) {
+				return new VPTree();
+			}
+		}
+		return new KDTree();
+	}
+
+	/**
+	 * Find the examples kept by Wilson's edited nearest neighbor rule
+	 * An example is removed if the majority of its k nearest other examples has another class label
+	 * 
+	 * @param  dataset   - the scaled training dataset
+	 * @return           - the indices of the kept examples in increasing order
+	 * @throws Exception 
+	 */
+	private int[] edit( DataSet dataset ) throws Exception {
+		this.search = this.createReductionSearch(dataset);
+		this.search.build(dataset);
+		this.shards = null;
+
+		Examples examples = dataset.getExamples();
+		int n = examples.size();
+		int classIndex = dataset.getAttributes().getClassIndex();
+		double[] votes = new double[ dataset.getAttributes().getClassAttribute().size() ];
+		int[] kept = new int[n];
+		int count = 0;
+
+		for(int start = 0; start < n; start += NeighborCache.CHUNK_SIZE) {
+			int end = Math.min(start + NeighborCache.CHUNK_SIZE, n);
+			Example[] queries = new Example[end - start];
+			NeighborHeap[] heaps = new NeighborHeap[end - start];
+			for(int q = 0; q < queries.length; q++) {
+				queries[q] = examples.get(start + q);
+				heaps[q] = new NeighborHeap(this.k + 1); // One more for the example itself
+			}
+			this.search(queries, heaps);
+
+			for(int q = 0; q < queries.length; q++) {
+				NeighborHeap heap = heaps[q];
+				heap.sort();
+				Arrays.fill(votes, 0.0);
+				for(int j = 0, voted = 0; j < heap.size() && voted < this.k; j++) {
+					if( heap.getIndex(j) != start + q ) {
+						votes[ heap.getLabel(j) ] += 1.0;
+						voted++;
+					}
+				}
+				if( Utils.maxIndex(votes) == (int) queries[q].getDouble(classIndex) ) {
+					kept[count++] = start + q;
+				}
+			}
+		}
+
+		return Arrays.copyOf(kept, count);
+	}
+
+	/**
+	 * Find the examples kept by Hart's condensed nearest neighbor rule
+	 * Starting from the first example, every example misclassified by its nearest kept example is kept,
+	 * until a pass keeps no more. Each example remembers its nearest kept example so far,
+	 * so a pass only compares it with the examples kept since it was last checked.
+	 * Kept examples are indexed in blocks as they accumulate, so those comparisons are searches.
+	 * 
+	 * @param  dataset   - the scaled training dataset
+	 * @return           - the indices of the kept examples in increasing order
+	 * @throws Exception 
+	 */
+	private int[] condense( DataSet dataset ) throws Exception {
+		Examples examples = dataset.getExamples();
+		int n = examples.size();
+		if( n == 0 ) return new int[0];
+
+		// Copy the attribute values once into a flat array for fast comparisons
+		Attributes attributes = dataset.getAttributes();
+		int classIndex = attributes.getClassIndex();
+		int d = attributes.size() - 1;
+		boolean[] nominal = new boolean[d];
+		for(int i = 0, j = 0; i < attributes.size(); i++) {
+			if( i != classIndex ) nominal[j++] = attributes.get(i) instanceof NominalAttribute;
+		}
+		double[] values = new double[n * d];
+		int[] labels = new int[n];
+		for(int r = 0; r < n; r++) {
+			Example example = examples.get(r);
+			for(int i = 0, j = 0; i < attributes.size(); i++) {
+				if( i != classIndex ) values[r * d + j++] = example.getDouble(i);
+			}
+			labels[r] = (int) example.getDouble(classIndex);
+		}
+
+		boolean[] isKept = new boolean[n];
+		int[] kept = new int[n];
+		double[] nearest = new double[n];
+		int[] nearestIndex = new int[n];
+		int[] checked = new int[n];
+		Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+		Arrays.fill(nearestIndex, -1);
+
+		ArrayList<NeighborSearch> blocks = new ArrayList<NeighborSearch>();
+		ArrayList<int[]> blockIndices = new ArrayList<int[]>();
+
+		isKept[0] = true;
+		kept[0] = 0;
+		int count = 1;
+
+		boolean changed = true;
+		while( changed ) {
+			changed = false;
+			for(int i = 0; i < n; i++) {
+				if( isKept[i] ) continue;
+
+				// Compare only with the examples kept since the last check,
+				// searching the index of each full block of kept examples
+				int m = checked[i];
+				while( m < count ) {
+					if( m % CONDENSE_BLOCK == 0 && m / CONDENSE_BLOCK < blocks.size() ) {
+						int[] block = blockIndices.get(m / CONDENSE_BLOCK);
+						NeighborHeap heap = new NeighborHeap(1);
+						blocks.get(m / CONDENSE_BLOCK).search(examples.get(i), heap);
+						int j = block[heap.getIndex(0)];
+						if( heap.getDistance(0) < nearest[i] || (heap.getDistance(0) == nearest[i] && j < nearestIndex[i]) ) {
+							nearest[i] = heap.getDistance(0);
+							nearestIndex[i] = j;
+						}
+						m += CONDENSE_BLOCK;
+						continue;
+					}
+
+					int j = kept[m++];
+					double bound = nearest[i];
+					double distance = 0.0;
+					for(int a = 0; a < d && distance <= bound; a++) {
+						if( nominal[a] ) {
+							if( Double.compare(values[i * d + a], values[j * d + a]) != 0 ) distance += 1.0;
+						}
+						else {
+							double difference = values[i * d + a] - values[j * d + a];
+							distance += difference * difference;
+						}
+					}
+					if( distance < bound || (distance == bound && j < nearestIndex[i]) ) {
+						nearest[i] = distance;
+						nearestIndex[i] = j;
+					}
+				}
+				checked[i] = count;
+
+				if( labels[nearestIndex[i]] != labels[i] ) {
+					isKept[i] = true;
+					kept[count++] = i;
+					changed = true;
+
+					// Index a full block, in training order so ties are broken the same way
+					if( count % CONDENSE_BLOCK == 0 ) {
+						int[] block = Arrays.copyOfRange(kept, count - CONDENSE_BLOCK, count);
+						Arrays.sort(block);
+						DataSet view = new DataSet(dataset, block);
+						NeighborSearch search = this.createReductionSearch(dataset);
+						search.build(view);
+						blocks.add(search);
+						blockIndices.add(block);
+					}
+				}
+			}
 		}
+
+		Arrays.sort(kept, 0, count);
+		return Arrays.copyOf(kept, count);
 	}
 
 	/**
@@ -203,6 +641,114 @@ public class IBk extends Classifier implements Serializable, OptionHandler {
 		else {
 			this.dataset = dataset;
 		}
+
+		// Reduce the training dataset, editing out noise before condensing
+		this.trainingSize = this.dataset.getExamples().size();
+		if( this.edit ) {
+			this.dataset = new DataSet(this.dataset, this.edit(this.dataset));
+		}
+		if( this.condense ) {
+			this.dataset = new DataSet(this.dataset, this.condense(this.dataset));
+		}
+		this.keptSize = this.dataset.getExamples().size();
+
+		// Split the training dataset into contiguous shards, one per thread
+		int n = this.dataset.getExamples().size();
+		int count = Math.min(this.threads, n / MIN_SHARD_SIZE);
+		if( count <= 1 ) {
+			this.search = this.createSearch(this.dataset);
+			this.search.build(this.dataset);
+			this.shards = null;
+			return;
+		}
+
+		this.search = null;
+		this.shards = new NeighborSearch[count];
+		this.shardStarts = new int[count];
+		ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for(int s = 0; s < count; s++) {
+			int start = (int) ((long) n * s / count);
+			int end = (int) ((long) n * (s + 1) / count);
+			int[] index = new int[end - start];
+			for(int i = 0; i < index.length; i++) {
+				index[i] = start + i;
+			}
+
+			final int shard = s;
+			final DataSet view = new DataSet(this.dataset, index);
+			this.shards[s] = this.createSearch(this.dataset);
+			this.shardStarts[s] = start;
+			tasks.add(() -> {
+				this.shards[shard].build(view);
+				return null;
+			});
+		}
+		Utils.invokeAll(this.threads, tasks);
+	}
+
+	/**
+	 * Get number of training examples given to the last call of train
+	 * 
+	 * @return - the number of training examples
+	 */
+	public int getTrainingSize() {
+		return this.trainingSize;
+	}
+
+	/**
+	 * Get number of training examples kept after editing and condensing
+	 * 
+	 * @return - the number of kept examples, equal to getTrainingSize() without -edit or -condense
+	 */
+	public int getKeptSize() {
+		return this.keptSize;
+	}
+
+	/**
+	 * Get a single search over the whole training dataset, for saving
+	 * A sharded classifier builds one, since shards are not saved
+	 * 
+	 * @return           - the trained NeighborSearch object
+	 * @throws Exception - if the search cannot be built
+	 */
+	protected NeighborSearch getSearch() throws Exception {
+		if( this.search != null ) {
+			return this.search;
+		}
+		NeighborSearch search = this.createSearch(this.dataset);
+		search.build(this.dataset);
+		return search;
+	}
+
+	/**
+	 * Get the name of the index of a search, so a saved classifier reads it back with the same type
+	 * 
+	 * @param  search - a trained NeighborSearch object
+	 * @return        - the name accepted by setIndex
+	 */
+	protected String getIndexName( NeighborSearch search ) {
+		if( search instanceof KDTree ) return "kdtree";
+		if( search instanceof VPTree ) return "vptree";
+		if( search instanceof HammingSearch ) return "hamming";
+		return "linear";
+	}
+
+	/**
+	 * Restore a saved classifier without training it
+	 * 
+	 * @param  dataset   - the scaled training dataset
+	 * @param  scaler    - the scaler fitted to the training dataset
+	 * @param  reader    - the reader positioned at the saved search
+	 * @throws Exception - if the search cannot be read
+	 */
+	protected void restore( DataSet dataset, Scaler scaler, IBkReader reader ) throws Exception {
+		this.dataset = dataset;
+		this.scaler = scaler;
+		this.search = this.createSearch(dataset);
+		this.search.read(reader, dataset);
+		this.shards = null;
+		this.trainingSize = dataset.getExamples().size();
+		this.keptSize = this.trainingSize;
 	}
 
 	/**
@@ -212,7 +758,50 @@ public class IBk extends Classifier implements Serializable, OptionHandler {
 	 */
 	public static void main( String[] args ) {
 		try {
+			String save = null;
+			String load = null;
+			for( int i = 0; i < args.length - 1; i++ ) {
+				if( args[i].equals("-save") ) save = args[i+1];
+				if( args[i].equals("-load") ) load = args[i+1];
+			}
+
+			// Classify the testing set with a saved classifier
+			if( load != null ) {
+				IBk ibk = new IBkReader(load).read();
+				ibk.setOptions(args);
+				TrainTestSets tts = new TrainTestSets(args);
+				System.out.println( ibk.classify(tts.getTestingSet()) );
+				return;
+			}
+
+			// Train on the training set and save the classifier
+			if( save != null ) {
+				IBk ibk = new IBk(args);
+				TrainTestSets tts = new TrainTestSets(args);
+				ibk.train(tts.getTrainingSet());
+				if( ibk.edit || ibk.condense ) {
+					System.out.println( "Kept " + ibk.getKeptSize() + " of " + ibk.getTrainingSize() + " training examples" );
+				}
+				new IBkWriter(save).write(ibk);
+				if( tts.getTestingSet().name != null ) {
+					System.out.println( ibk.classify(tts.getTestingSet()) );
+				}
+				return;
+			}
+
 			Evaluator evaluator = new Evaluator( new IBk(args), args );
+
+			// Report the accuracy of every k in the sweep
+			if( evaluator.isSweep() ) {
+				Performance[] performances = evaluator.evaluateSweep();
+				System.out.println( "k\tAccuracy\tSD" );
+				for(int i = 0; i < performances.length; i++) {
+					int k = evaluator.getSweepMin() + i;
+					System.out.println( k + "\t" + performances[i].getAccuracy() + "\t" + performances[i].getSDAcc() );
+				}
+				return;
+			}
+
 			Performance performace = evaluator.evaluate();
 			System.out.println( performace );
 		} // try
@@ -0,0 +1,277 @@
+/*
+ * IBkReader.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a trained IBk classifier written by IBkWriter.
+ * The scaled training examples are mapped in place as an OffHeapStore, so they are
+ * neither parsed, scaled nor copied, and the search index is restored without being rebuilt.
+ * The arrays of the index are mapped as buffers too, so only the header is read at load time.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-11-01
+ */
+public class IBkReader {
+	/** the largest number of bytes mapped at once */
+	private static final int MAP_BYTES = 1 << 30;
+	/** the file being read */
+	private FileChannel channel;
+	/** the mapped part of the file */
+	private MappedByteBuffer window;
+	/** the offset in the file of the mapped part */
+	private long windowStart;
+
+	/**
+	 * Explicit constructor.
+	 *
+	 * @param  filename - the file to read
+	 * @throws IOException - if the file cannot be opened
+	 */
+	public IBkReader( String filename ) throws IOException {
+		this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		this.windowStart = 0;
+		this.window = null;
+	}
+
+	/**
+	 * Reads the classifier and closes the file.
+	 *
+	 * @return the trained classifier
+	 * @throws Exception - if the file is not a saved IBk
+	 */
+	public IBk read() throws Exception {
+		try {
+			if( getInt() != IBkWriter.MAGIC )
+				throw new Exception("Parse error. Not an .ibk file");
+			if( getInt() != IBkWriter.VERSION )
+				throw new Exception("Parse error. Unsupported .ibk version");
+
+			IBk ibk = new IBk();
+			ibk.setK(getInt());
+			ibk.setIndex(getString());
+
+			String name = getString();
+			Attributes attributes = new Attributes();
+			int size = getInt();
+			int classIndex = getInt();
+			for(int j = 0; j < size; j++) {
+				byte type = getByte();
+				String attributeName = getString();
+
+				if( type == 0 ) {
+					attributes.add(new NumericAttribute(attributeName));
+				}
+				else {
+					NominalAttribute nomAtt = new NominalAttribute(attributeName);
+					int domain = getInt();
+					for(int v = 0; v < domain; v++) {
+						nomAtt.addValue(getString());
+					}
+					attributes.add(nomAtt);
+				}
+			}
+			attributes.setClassIndex(classIndex);
+			int rows = getInt();
+
+			align();
+			double[] mins = new double[size];
+			double[] maxs = new double[size];
+			getDoubles(mins);
+			getDoubles(maxs);
+
+			// Map the training examples in place and skip them
+			long position = getPosition();
+			OffHeapStore store = OffHeapStore.map(channel, position, rows, size);
+			seek(position + 8L * size * rows);
+
+			DataSet dataset = new DataSet(attributes, store);
+			dataset.name = name.isEmpty() ? null : name;
+			ibk.restore(dataset, new Scaler(attributes, mins, maxs), this);
+			return ibk;
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Reads a byte.
+	 *
+	 * @return the value
+	 * @throws IOException - if the file cannot be read
+	 */
+	public byte getByte() throws IOException {
+		ensure(1);
+		return window.get();
+	}
+
+	/**
+	 * Reads an int.
+	 *
+	 * @return the value
+	 * @throws IOException - if the file cannot be read
+	 */
+	public int getInt() throws IOException {
+		ensure(4);
+		return window.getInt();
+	}
+
+	/**
+	 * Reads a string stored as its length followed by its UTF-8 bytes.
+	 *
+	 * @return the string
+	 * @throws IOException - if the file cannot be read
+	 */
+	public String getString() throws IOException {
+		byte[] bytes = new byte[getInt()];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = getByte();
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads an array of ints stored as its length followed by its values.
+	 *
+	 * @return the array
+	 * @throws IOException - if the file cannot be read
+	 */
+	public int[] getInts() throws IOException {
+		int[] values = new int[getInt()];
+		for(int done = 0; done < values.length; ) {
+			ensure(4);
+			int count = Math.min(values.length - done, window.remaining() / 4);
+			window.asIntBuffer().get(values, done, count);
+			window.position(window.position() + 4 * count);
+			done += count;
+		}
+		return values;
+	}
+
+	/**
+	 * Maps an aligned array of ints stored as its length followed by its values, without copying it.
+	 *
+	 * @return a read-only buffer of the values
+	 * @throws IOException - if the file cannot be mapped
+	 */
+	public IntBuffer mapInts() throws IOException {
+		int length = getInt();
+		align();
+		return map(4L * length).asIntBuffer();
+	}
+
+	/**
+	 * Maps an aligned array of doubles stored as its length followed by its values, without copying it.
+	 *
+	 * @return a read-only buffer of the values
+	 * @throws IOException - if the file cannot be mapped
+	 */
+	public DoubleBuffer mapDoubles() throws IOException {
+		int length = getInt();
+		align();
+		return map(8L * length).asDoubleBuffer();
+	}
+
+	/**
+	 * Maps an aligned array of longs stored as its length followed by its values, without copying it.
+	 *
+	 * @return a read-only buffer of the values
+	 * @throws IOException - if the file cannot be mapped
+	 */
+	public LongBuffer mapLongs() throws IOException {
+		int length = getInt();
+		align();
+		return map(8L * length).asLongBuffer();
+	}
+
+	/**
+	 * Fills an array with doubles.
+	 *
+	 * @param  values - the array to fill
+	 * @throws IOException - if the file cannot be read
+	 */
+	private void getDoubles( double[] values ) throws IOException {
+		for(int done = 0; done < values.length; ) {
+			ensure(8);
+			int count = Math.min(values.length - done, window.remaining() / 8);
+			window.asDoubleBuffer().get(values, done, count);
+			window.position(window.position() + 8 * count);
+			done += count;
+		}
+	}
+
+	/**
+	 * Maps the next bytes of the file on their own and skips them.
+	 *
+	 * @param  bytes - the number of bytes
+	 * @return the mapped bytes, little endian
+	 * @throws IOException - if the file cannot be mapped or ends too soon
+	 */
+	private ByteBuffer map( long bytes ) throws IOException {
+		long position = getPosition();
+		if( channel.size() - position < bytes ) {
+			throw new IOException("Unexpected end of the .ibk file");
+		}
+		ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+		seek(position + bytes);
+		return buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Returns the offset in the file of the next unread byte.
+	 *
+	 * @return the offset
+	 */
+	private long getPosition() {
+		return window == null ? windowStart : windowStart + window.position();
+	}
+
+	/**
+	 * Skips to an offset in the file.
+	 *
+	 * @param position - the offset of the next byte to read
+	 */
+	private void seek( long position ) {
+		windowStart = position;
+		window = null;
+	}
+
+	/**
+	 * Skips the padding to a multiple of eight bytes.
+	 */
+	private void align() {
+		seek((getPosition() + 7) / 8 * 8);
+	}
+
+	/**
+	 * Maps the file from the next unread byte if fewer than the specified number of bytes are mapped.
+	 *
+	 * @param  bytes - the number of bytes to be read
+	 * @throws IOException - if the file cannot be mapped or ends too soon
+	 */
+	private void ensure( int bytes ) throws IOException {
+		if( window != null && window.remaining() >= bytes ) return;
+
+		long position = getPosition();
+		long length = Math.min(channel.size() - position, MAP_BYTES);
+		if( length < bytes ) {
+			throw new IOException("Unexpected end of the .ibk file");
+		}
+		window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+		windowStart = position;
+	}
+}
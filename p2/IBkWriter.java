@@ -0,0 +1,257 @@
+/*
+ * IBkWriter.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a trained IBk classifier to a single file laid out for memory mapping (.ibk).
+ *
+ * The file is little endian. It starts with the magic number IBKM, the version, k, the name of
+ * the index, the data set's name and its attributes in the same form as an .mffb header, the
+ * number of training examples, then the scaler's minimum and maximum of each attribute.
+ * After padding to a multiple of eight bytes come the scaled training examples, row by row,
+ * one double per attribute, so a reader maps them in place instead of copying them.
+ * The rest of the file holds the arrays of the search index, each as an int length followed
+ * by its values. Arrays as long as the training set or the index's nodes are aligned to eight
+ * bytes, so a reader maps them in place as well and loading does not grow with the training set.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-11-01
+ */
+public class IBkWriter {
+	/** the magic number at the start of every .ibk file */
+	public static final int MAGIC = 0x4D4B4249;
+	/** the version of the format */
+	public static final int VERSION = 2;
+	/** the file being written */
+	private FileChannel channel;
+	/** the write buffer */
+	private ByteBuffer buffer;
+
+	/**
+	 * Explicit constructor. Creates or truncates the specified file.
+	 *
+	 * @param  filename - the file to write
+	 * @throws IOException - if the file cannot be opened
+	 */
+	public IBkWriter( String filename ) throws IOException {
+		this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Writes the specified trained classifier and closes the file.
+	 *
+	 * @param  ibk - the trained classifier
+	 * @throws Exception - if the classifier is not trained or the file cannot be written
+	 */
+	public void write( IBk ibk ) throws Exception {
+		try {
+			if( ibk.dataset == null ) {
+				throw new Exception("Only a trained IBk can be saved.");
+			}
+			DataSet dataset = ibk.dataset;
+			Attributes attributes = dataset.getAttributes();
+			Examples examples = dataset.getExamples();
+			NeighborSearch search = ibk.getSearch();
+
+			// Header
+			putInt(MAGIC);
+			putInt(VERSION);
+			putInt(ibk.getK());
+			putString(ibk.getIndexName(search));
+			putString(dataset.name == null ? "" : dataset.name);
+			putInt(attributes.size());
+			putInt(attributes.getClassIndex());
+			for(int j = 0; j < attributes.size(); j++) {
+				if( attributes.get(j) instanceof NumericAttribute ) {
+					putByte((byte) 0);
+					putString(attributes.get(j).getName());
+				}
+				else {
+					NominalAttribute nomAtt = (NominalAttribute) attributes.get(j);
+					putByte((byte) 1);
+					putString(nomAtt.getName());
+					putInt(nomAtt.size());
+					for(int v = 0; v < nomAtt.size(); v++) {
+						putString(nomAtt.getValue(v));
+					}
+				}
+			}
+			putInt(examples.size());
+
+			// Scaler, which has no bounds if there are no numeric attributes
+			double[] mins = ibk.scaler.getMins();
+			double[] maxs = ibk.scaler.getMaxs();
+			align();
+			for(int j = 0; j < attributes.size(); j++) {
+				putDouble(j < mins.length ? mins[j] : 0.0);
+			}
+			for(int j = 0; j < attributes.size(); j++) {
+				putDouble(j < maxs.length ? maxs[j] : 0.0);
+			}
+
+			// Scaled training examples, row by row
+			for(int i = 0; i < examples.size(); i++) {
+				Example example = examples.get(i);
+				for(int j = 0; j < attributes.size(); j++) {
+					putDouble(example.getDouble(j));
+				}
+			}
+
+			// Search index
+			search.write(this);
+
+			flush();
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes a byte.
+	 *
+	 * @param  value - the value
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void putByte( byte value ) throws IOException {
+		ensure(1);
+		buffer.put(value);
+	}
+
+	/**
+	 * Writes an int.
+	 *
+	 * @param  value - the value
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void putInt( int value ) throws IOException {
+		ensure(4);
+		buffer.putInt(value);
+	}
+
+	/**
+	 * Writes a double.
+	 *
+	 * @param  value - the value
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void putDouble( double value ) throws IOException {
+		ensure(8);
+		buffer.putDouble(value);
+	}
+
+	/**
+	 * Writes a string as its length followed by its UTF-8 bytes.
+	 *
+	 * @param  value - the string
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void putString( String value ) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		putInt(bytes.length);
+		for(int i = 0; i < bytes.length; i++) {
+			putByte(bytes[i]);
+		}
+	}
+
+	/**
+	 * Writes an array of ints as its length followed by its values.
+	 *
+	 * @param  values - the array
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void putInts( int[] values ) throws IOException {
+		putInt(values.length);
+		for(int i = 0; i < values.length; i++) {
+			putInt(values[i]);
+		}
+	}
+
+	/**
+	 * Writes the ints of a buffer up to its limit as their number followed by the values, aligned to eight bytes.
+	 *
+	 * @param  values - the buffer
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void putInts( IntBuffer values ) throws IOException {
+		putInt(values.limit());
+		align();
+		for(int i = 0; i < values.limit(); i++) {
+			putInt(values.get(i));
+		}
+	}
+
+	/**
+	 * Writes the doubles of a buffer up to its limit as their number followed by the values, aligned to eight bytes.
+	 *
+	 * @param  values - the buffer
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void putDoubles( DoubleBuffer values ) throws IOException {
+		putInt(values.limit());
+		align();
+		for(int i = 0; i < values.limit(); i++) {
+			putDouble(values.get(i));
+		}
+	}
+
+	/**
+	 * Writes the longs of a buffer up to its limit as their number followed by the values, aligned to eight bytes.
+	 *
+	 * @param  values - the buffer
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void putLongs( LongBuffer values ) throws IOException {
+		putInt(values.limit());
+		align();
+		for(int i = 0; i < values.limit(); i++) {
+			ensure(8);
+			buffer.putLong(values.get(i));
+		}
+	}
+
+	/**
+	 * Pads the file to a multiple of eight bytes.
+	 *
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void align() throws IOException {
+		long written = channel.position() + buffer.position();
+		while( written++ % 8 != 0 ) putByte((byte) 0);
+	}
+
+	/**
+	 * Makes room in the buffer for the specified number of bytes.
+	 *
+	 * @param  bytes - the number of bytes to be written
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void ensure( int bytes ) throws IOException {
+		if( buffer.remaining() < bytes ) flush();
+	}
+
+	/**
+	 * Writes the buffer to the file.
+	 *
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while( buffer.hasRemaining() ) channel.write(buffer);
+		buffer.clear();
+	}
+}
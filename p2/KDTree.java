@@ -0,0 +1,326 @@
+/*
+ * KDTree.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Finds nearest neighbors with a KD-tree over a numeric training set.
+ * Each node splits its examples at the median of the attribute with the widest spread,
+ * and a search skips every cell whose squared distance from the query exceeds the
+ * current k-th nearest, so it finds exactly the neighbors of a linear search.
+ * The tree is stored in flat buffers, with the values of each leaf's examples contiguous.
+ * A saved tree is mapped without its copy of the values, which are then read from the
+ * mapped training set through the rows of the tree.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-29
+ */
+public class KDTree extends NeighborSearch {
+	/** the largest number of examples in a leaf */
+	private static final int LEAF_SIZE = 16;
+	/** the indices of the attributes stored in the tree */
+	private int[] dims;
+	/** the values of the examples, row by row in tree order, or null for a saved tree */
+	private double[] points;
+	/** the mapped training set holding the values of a saved tree */
+	private OffHeapStore store;
+	/** the class labels of the examples in tree order */
+	private IntBuffer labels;
+	/** the indices of the examples in the training set, in tree order */
+	private IntBuffer rows;
+	/** the split dimension of each node, or -1 for a leaf */
+	private IntBuffer splitDims;
+	/** the split value of each node */
+	private DoubleBuffer splitValues;
+	/** the left child of each node */
+	private IntBuffer lefts;
+	/** the right child of each node */
+	private IntBuffer rights;
+	/** the first example of each node */
+	private IntBuffer starts;
+	/** the end of the examples of each node */
+	private IntBuffer ends;
+	/** the number of nodes */
+	private int nodes;
+
+	/**
+	 * Builds the tree over a training set.
+	 *
+	 * @param  dataset - the scaled training set, which must have only numeric attributes besides the class
+	 * @throws Exception - if the training set has nominal attributes
+	 */
+	public void build( DataSet dataset ) throws Exception {
+		super.build(dataset);
+
+		dims = new int[nominal.length - 1];
+		for(int i = 0, d = 0; i < nominal.length; i++) {
+			if( i == classIndex ) continue;
+			if( nominal[i] ) {
+				throw new Exception("A KD-tree index requires numeric attributes: " + dataset.getAttributes().get(i).getName());
+			}
+			dims[d++] = i;
+		}
+
+		// Copy the values once so the tree can reorder them
+		Examples examples = dataset.getExamples();
+		int n = examples.size();
+		int d = dims.length;
+		double[] values = new double[n * d];
+		int[] order = new int[n];
+		int[] classes = new int[n];
+		for(int r = 0; r < n; r++) {
+			Example example = examples.get(r);
+			for(int j = 0; j < d; j++) {
+				values[r * d + j] = example.getDouble(dims[j]);
+			}
+			classes[r] = this.getLabel(example);
+			order[r] = r;
+		}
+
+		int capacity = Math.max(1, 2 * n / LEAF_SIZE + 1);
+		splitDims = IntBuffer.allocate(capacity);
+		splitValues = DoubleBuffer.allocate(capacity);
+		lefts = IntBuffer.allocate(capacity);
+		rights = IntBuffer.allocate(capacity);
+		starts = IntBuffer.allocate(capacity);
+		ends = IntBuffer.allocate(capacity);
+		nodes = 0;
+		this.build(values, order, 0, n);
+		this.resizeNodes(nodes);
+
+		// Lay the examples out in tree order
+		points = new double[n * d];
+		store = null;
+		int[] sorted = new int[n];
+		for(int i = 0; i < n; i++) {
+			System.arraycopy(values, order[i] * d, points, i * d, d);
+			sorted[i] = classes[order[i]];
+		}
+		labels = IntBuffer.wrap(sorted);
+		rows = IntBuffer.wrap(order);
+	}
+
+	/**
+	 * Builds the subtree over a range of examples.
+	 *
+	 * @param  values - the values of the examples, row by row in training-set order
+	 * @param  order - the examples, reordered in place
+	 * @param  start - the first example of the range
+	 * @param  end - the end of the range
+	 * @return the index of the node
+	 */
+	private int build( double[] values, int[] order, int start, int end ) {
+		int node = this.newNode(start, end);
+		if( end - start <= LEAF_SIZE ) return node;
+
+		// Split on the attribute with the widest spread
+		int d = dims.length;
+		int split = -1;
+		double widest = 0.0;
+		for(int j = 0; j < d; j++) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for(int i = start; i < end; i++) {
+				double value = values[order[i] * d + j];
+				if( value < min ) min = value;
+				if( value > max ) max = value;
+			}
+			if( max - min > widest ) {
+				widest = max - min;
+				split = j;
+			}
+		}
+		if( split < 0 ) return node; // All examples are equal
+
+		int middle = (start + end) >>> 1;
+		select(values, order, start, end, middle, split);
+
+		splitDims.put(node, split);
+		splitValues.put(node, values[order[middle] * d + split]);
+		int left = this.build(values, order, start, middle);
+		int right = this.build(values, order, middle, end);
+		lefts.put(node, left);
+		rights.put(node, right);
+		return node;
+	}
+
+	/**
+	 * Allocates a leaf node.
+	 *
+	 * @param  start - the first example of the node
+	 * @param  end - the end of the examples of the node
+	 * @return the index of the node
+	 */
+	private int newNode( int start, int end ) {
+		if( nodes == splitDims.limit() ) {
+			this.resizeNodes(nodes * 2);
+		}
+		splitDims.put(nodes, -1);
+		starts.put(nodes, start);
+		ends.put(nodes, end);
+		return nodes++;
+	}
+
+	/**
+	 * Grows or trims the buffers of the nodes.
+	 *
+	 * @param capacity - the number of nodes the buffers hold
+	 */
+	private void resizeNodes( int capacity ) {
+		splitDims = resize(splitDims, capacity);
+		splitValues = resize(splitValues, capacity);
+		lefts = resize(lefts, capacity);
+		rights = resize(rights, capacity);
+		starts = resize(starts, capacity);
+		ends = resize(ends, capacity);
+	}
+
+	/**
+	 * Reorders a range of examples so the kth has the median value of a dimension,
+	 * with no greater value before it and no smaller value after it.
+	 *
+	 * @param values - the values of the examples
+	 * @param order - the examples, reordered in place
+	 * @param start - the first example of the range
+	 * @param end - the end of the range
+	 * @param k - the position to select
+	 * @param j - the dimension
+	 */
+	private void select( double[] values, int[] order, int start, int end, int k, int j ) {
+		int d = dims.length;
+		int lo = start;
+		int hi = end - 1;
+		while( lo < hi ) {
+			double pivot = values[order[(lo + hi) >>> 1] * d + j];
+			int i = lo;
+			int m = hi;
+			while( i <= m ) {
+				while( values[order[i] * d + j] < pivot ) i++;
+				while( values[order[m] * d + j] > pivot ) m--;
+				if( i <= m ) {
+					int swap = order[i];
+					order[i] = order[m];
+					order[m] = swap;
+					i++;
+					m--;
+				}
+			}
+			if( k <= m ) hi = m;
+			else if( k >= i ) lo = i;
+			else break;
+		}
+	}
+
+	/**
+	 * Writes the structures built over the training set, so they can be read back without rebuilding.
+	 *
+	 * @param  writer - the writer of a saved IBk
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void write( IBkWriter writer ) throws IOException {
+		writer.putInts(dims);
+		writer.putInts(labels);
+		writer.putInts(rows);
+		writer.putInt(nodes);
+		writer.putInts(splitDims);
+		writer.putDoubles(splitValues);
+		writer.putInts(lefts);
+		writer.putInts(rights);
+		writer.putInts(starts);
+		writer.putInts(ends);
+	}
+
+	/**
+	 * Maps the structures written by write over the same training set.
+	 *
+	 * @param  reader - the reader of a saved IBk
+	 * @param  dataset - the scaled training set, whose mapped store holds example r in row r
+	 * @throws Exception - if the file cannot be read
+	 */
+	public void read( IBkReader reader, DataSet dataset ) throws Exception {
+		this.setDataSet(dataset);
+		points = null;
+		store = dataset.getOffHeapStore();
+		dims = reader.getInts();
+		labels = reader.mapInts();
+		rows = reader.mapInts();
+		nodes = reader.getInt();
+		splitDims = reader.mapInts();
+		splitValues = reader.mapDoubles();
+		lefts = reader.mapInts();
+		rights = reader.mapInts();
+		starts = reader.mapInts();
+		ends = reader.mapInts();
+	}
+
+	/**
+	 * Offers the nearest training examples of a query to a heap.
+	 *
+	 * @param  query - a scaled query example
+	 * @param  heap - the heap receiving the neighbors
+	 * @throws Exception
+	 */
+	public void search( Example query, NeighborHeap heap ) throws Exception {
+		if( nodes == 0 ) return;
+
+		double[] q = new double[dims.length];
+		for(int j = 0; j < q.length; j++) {
+			q[j] = query.getDouble(dims[j]);
+		}
+		this.search(0, q, new double[q.length], heap);
+	}
+
+	/**
+	 * Searches a subtree.
+	 * The distance from the query to the node's cell is summed in the same order as
+	 * the distances to examples, so it never exceeds the distance to an example in the cell
+	 * and ties with the k-th nearest are never pruned.
+	 *
+	 * @param node - the node
+	 * @param q - the values of the query
+	 * @param offsets - the offset of the query from the node's cell in each dimension
+	 * @param heap - the heap receiving the neighbors
+	 */
+	private void search( int node, double[] q, double[] offsets, NeighborHeap heap ) {
+		double cell = 0.0;
+		for(int j = 0; j < offsets.length; j++) {
+			cell += offsets[j] * offsets[j];
+		}
+		if( cell > heap.bound() ) return;
+
+		int split = splitDims.get(node);
+		if( split < 0 ) {
+			int d = dims.length;
+			for(int i = starts.get(node); i < ends.get(node); i++) {
+				double bound = heap.bound();
+				double distance = 0.0;
+				int row = rows.get(i);
+				for(int j = 0, base = i * d; j < d; j++) {
+					double value = points != null ? points[base + j] : store.getDouble(row, dims[j]);
+					double difference = q[j] - value;
+					distance += difference * difference;
+					if( distance > bound ) break;
+				}
+				if( distance <= bound ) {
+					heap.offer(distance, labels.get(i), row);
+				}
+			}
+			return;
+		}
+
+		// Visit the side of the query first, then the other side if it is near enough
+		double difference = q[split] - splitValues.get(node);
+		int near = difference < 0 ? lefts.get(node) : rights.get(node);
+		int far = difference < 0 ? rights.get(node) : lefts.get(node);
+		this.search(near, q, offsets, heap);
+
+		double offset = offsets[split];
+		offsets[split] = difference;
+		this.search(far, q, offsets, heap);
+		offsets[split] = offset;
+	}
+}
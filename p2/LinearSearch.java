@@ -0,0 +1,182 @@
+/*
+ * LinearSearch.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Finds nearest neighbors by comparing the query with every training example.
+ * Row-wise training sets abandon an example once its partial distance passes the
+ * current k-th nearest; columnar training sets stream each attribute column once instead.
+ * A batch of queries is compared with one block of training rows at a time,
+ * so each block is reused by all the queries while it is in cache.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-29
+ */
+public class LinearSearch extends NeighborSearch {
+	/** the number of columnar rows whose distances are computed together */
+	private static final int BLOCK_SIZE = 4096;
+	/** the number of row-wise examples compared with a batch together */
+	private static final int TILE_SIZE = 512;
+	/** the kernel adding squared differences of numeric columns */
+	private DistanceKernel kernel = DistanceKernel.getInstance();
+	/** the row of the columns of each example, for a columnar training set */
+	private int[] rows;
+	/** the rows passed to the kernel, or null if example r is row r */
+	private int[] numericRows;
+	/** the class label of each example, for a columnar training set */
+	private int[] labels;
+
+	/**
+	 * Prepares the search over a training set.
+	 *
+	 * @param  dataset - the scaled training set
+	 * @throws Exception
+	 */
+	public void build( DataSet dataset ) throws Exception {
+		super.build(dataset);
+
+		if( dataset.isColumnar() ) {
+			ColumnStore columns = dataset.getColumns();
+			Examples examples = dataset.getExamples();
+			rows = new int[examples.size()];
+			labels = new int[examples.size()];
+			boolean contiguous = true;
+			for(int r = 0; r < rows.length; r++) {
+				rows[r] = examples.getRow(r);
+				labels[r] = columns.getCode(rows[r], classIndex);
+				contiguous &= rows[r] == r;
+			}
+			numericRows = contiguous ? null : rows;
+		}
+	}
+
+	/**
+	 * Prepares the search over a saved training set, which needs no stored structures.
+	 *
+	 * @param  reader - the reader of a saved IBk
+	 * @param  dataset - the scaled training set
+	 * @throws Exception
+	 */
+	public void read( IBkReader reader, DataSet dataset ) throws Exception {
+		this.build(dataset);
+	}
+
+	/**
+	 * Offers the nearest training examples of a query to a heap.
+	 *
+	 * @param  query - a scaled query example
+	 * @param  heap - the heap receiving the neighbors
+	 * @throws Exception
+	 */
+	public void search( Example query, NeighborHeap heap ) throws Exception {
+		this.search(new Example[] { query }, new NeighborHeap[] { heap }, 0, 1);
+	}
+
+	/**
+	 * Offers the nearest training examples of a range of queries to their heaps.
+	 *
+	 * @param  queries - scaled query examples
+	 * @param  heaps - the heap receiving the neighbors of each query
+	 * @param  from - the first query
+	 * @param  to - the end of the queries
+	 * @throws Exception
+	 */
+	public void search( Example[] queries, NeighborHeap[] heaps, int from, int to ) throws Exception {
+		Examples examples = dataset.getExamples();
+		int n = examples.size();
+
+		// Columnar training set, compute the distances of a block one column at a time
+		if( dataset.isColumnar() ) {
+			ColumnStore columns = dataset.getColumns();
+			double[] distances = new double[Math.min(BLOCK_SIZE, n)];
+			for(int start = 0; start < n; start += BLOCK_SIZE) {
+				int end = Math.min(start + BLOCK_SIZE, n);
+				for(int q = from; q < to; q++) {
+					NeighborHeap heap = heaps[q];
+					Arrays.fill(distances, 0.0);
+					this.addColumnarDistances(queries[q], columns, distances, start, end);
+					for(int r = start; r < end; r++) {
+						if( distances[r - start] <= heap.bound() ) {
+							heap.offer(distances[r - start], labels[r], r);
+						}
+					}
+				}
+			}
+			return;
+		}
+
+		Example[] tile = new Example[Math.min(TILE_SIZE, n)];
+		for(int start = 0; start < n; start += TILE_SIZE) {
+			int end = Math.min(start + TILE_SIZE, n);
+			for(int r = start; r < end; r++) {
+				tile[r - start] = examples.get(r);
+			}
+
+			for(int q = from; q < to; q++) {
+				Example query = queries[q];
+				NeighborHeap heap = heaps[q];
+				for(int r = start; r < end; r++) {
+					Example example = tile[r - start];
+					double bound = heap.bound();
+					double distance = this.distance(query, example, bound);
+					if( distance <= bound ) {
+						heap.offer(distance, this.getLabel(example), r);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add squared distances between the query and a block of rows of a columnar training set
+	 * Each attribute column is streamed once and added to every row's distance
+	 * 
+	 * @param query      - a scaled query example
+	 * @param columns    - columns of the training set
+	 * @param distances  - the distances of the block, starting at distances[0]
+	 * @param from       - the first example of the block
+	 * @param to         - the end of the block
+	 */
+	private void addColumnarDistances( Example query, ColumnStore columns, double[] distances, int from, int to ) {
+		for(int i = 0; i < nominal.length; i++) {
+			if( i == classIndex ) continue;
+
+			// If nominal attribute mismatched, increase distance by 1.0
+			if( nominal[i] && columns.getByteColumn(i) != null ) {
+				byte[] column = columns.getByteColumn(i);
+				int code = (int) query.getDouble(i);
+				for(int r = from; r < to; r++) {
+					if( (column[rows[r]] & 0xFF) != code ) {
+						distances[r - from] += 1.0;
+					}
+				}
+			}
+			else if( nominal[i] && columns.getShortColumn(i) != null ) {
+				short[] column = columns.getShortColumn(i);
+				int code = (int) query.getDouble(i);
+				for(int r = from; r < to; r++) {
+					if( (column[rows[r]] & 0xFFFF) != code ) {
+						distances[r - from] += 1.0;
+					}
+				}
+			}
+			else if( nominal[i] ) {
+				double[] column = columns.getNumericColumn(i);
+				double value = query.getDouble(i);
+				for(int r = from; r < to; r++) {
+					if( Double.compare(value, column[rows[r]]) != 0 ) {
+						distances[r - from] += 1.0;
+					}
+				}
+			}
+
+			// If numeric attribute mismatched, increase distance by squared differences
+			else {
+				kernel.addSquaredDifferences(query.getDouble(i), columns.getNumericColumn(i), numericRows, distances, from, to);
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * MFFBReader.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads data sets in the binary format written by MFFBWriter.
+ * The blocks of values are copied from a memory map straight into the columns of a ColumnStore,
+ * so the loaded data set is columnar.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-24
+ */
+public class MFFBReader {
+	/** the largest number of bytes mapped at once */
+	private static final int MAP_BYTES = 1 << 30;
+	/** the file being read */
+	private FileChannel channel;
+	/** the offset of the next unread byte */
+	private long offset;
+
+	/**
+	 * Explicit constructor.
+	 *
+	 * @param  filename - the file to read
+	 * @throws IOException - if the file cannot be opened
+	 */
+	public MFFBReader( String filename ) throws IOException {
+		this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		this.offset = 0;
+	}
+
+	/**
+	 * Reads the data set into the specified empty data set and closes the file.
+	 *
+	 * @param  dataset - the data set to fill
+	 * @throws Exception - if the file is not in the binary format
+	 */
+	public void read( DataSet dataset ) throws Exception {
+		try {
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), MAP_BYTES));
+			header.order(ByteOrder.LITTLE_ENDIAN);
+
+			if( header.getInt() != MFFBWriter.MAGIC )
+				throw new Exception("Parse error. Not an .mffb file");
+			if( header.getInt() != MFFBWriter.VERSION )
+				throw new Exception("Parse error. Unsupported .mffb version");
+
+			String dataSetName = getString(header);
+			dataset.name = dataSetName.isEmpty() ? null : dataSetName; // An empty name is an unnamed data set
+			Attributes attributes = dataset.getAttributes();
+			int size = header.getInt();
+			int classIndex = header.getInt();
+			for(int j = 0; j < size; j++) {
+				byte type = header.get();
+				String name = getString(header);
+
+				if( type == 0 ) {
+					attributes.add(new NumericAttribute(name));
+				}
+				else {
+					NominalAttribute nomAtt = new NominalAttribute(name);
+					int domain = header.getInt();
+					for(int v = 0; v < domain; v++) {
+						nomAtt.addValue(getString(header));
+					}
+					attributes.add(nomAtt);
+				}
+			}
+			attributes.setClassIndex(classIndex);
+
+			int rows = header.getInt();
+			offset = (header.position() + 7) / 8 * 8;
+
+			// Copy each block into its column
+			ColumnStore columns = new ColumnStore(attributes, rows);
+			for(int j = 0; j < size; j++) {
+				int width = MFFBWriter.getWidth(attributes.get(j));
+				if( width == 8 ) readDoubles(columns.getNumericColumn(j), rows);
+				else if( width == 1 ) readBytes(columns.getByteColumn(j), rows);
+				else if( width == 2 ) readShorts(columns.getShortColumn(j), rows);
+				else readInts(columns.getNumericColumn(j), rows);
+			}
+			columns.setSize(rows);
+
+			dataset.setColumns(columns);
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Reads a string stored as its length followed by its UTF-8 bytes.
+	 *
+	 * @param  buffer - the buffer positioned at the string
+	 * @return the string
+	 */
+	private static String getString( MappedByteBuffer buffer ) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Maps the next part of the file.
+	 *
+	 * @param  bytes - the number of bytes to map
+	 * @return the mapped part, positioned at its start
+	 * @throws IOException - if the file cannot be mapped
+	 */
+	private MappedByteBuffer map( long bytes ) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		offset += bytes;
+		return buffer;
+	}
+
+	/**
+	 * Reads a block of doubles.
+	 *
+	 * @param  column - the column to fill
+	 * @param  n - the number of values
+	 * @throws IOException - if the file cannot be read
+	 */
+	private void readDoubles( double[] column, int n ) throws IOException {
+		for(int done = 0; done < n; ) {
+			int count = Math.min(n - done, MAP_BYTES / 8);
+			map(count * 8L).asDoubleBuffer().get(column, done, count);
+			done += count;
+		}
+	}
+
+	/**
+	 * Reads a block of byte codes.
+	 *
+	 * @param  column - the column to fill
+	 * @param  n - the number of values
+	 * @throws IOException - if the file cannot be read
+	 */
+	private void readBytes( byte[] column, int n ) throws IOException {
+		for(int done = 0; done < n; ) {
+			int count = Math.min(n - done, MAP_BYTES);
+			map(count).get(column, done, count);
+			done += count;
+		}
+	}
+
+	/**
+	 * Reads a block of short codes.
+	 *
+	 * @param  column - the column to fill
+	 * @param  n - the number of values
+	 * @throws IOException - if the file cannot be read
+	 */
+	private void readShorts( short[] column, int n ) throws IOException {
+		for(int done = 0; done < n; ) {
+			int count = Math.min(n - done, MAP_BYTES / 2);
+			map(count * 2L).asShortBuffer().get(column, done, count);
+			done += count;
+		}
+	}
+
+	/**
+	 * Reads a block of int codes into a double column.
+	 *
+	 * @param  column - the column to fill
+	 * @param  n - the number of values
+	 * @throws IOException - if the file cannot be read
+	 */
+	private void readInts( double[] column, int n ) throws IOException {
+		for(int done = 0; done < n; ) {
+			int count = Math.min(n - done, MAP_BYTES / 4);
+			MappedByteBuffer buffer = map(count * 4L);
+			for(int i = 0; i < count; i++) {
+				column[done + i] = buffer.getInt();
+			}
+			done += count;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * MFFBWriter.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes data sets in the binary sibling of Mark's file format (.mffb).
+ *
+ * The file is little endian and consists of a header followed by one block per attribute:
+ * the magic number MFFB, the version, the data set's name (empty if it has none), the number of attributes,
+ * the class index, and for each attribute its type (0 numeric, 1 nominal), its name
+ * and, for nominal attributes, its domain. Strings are an int length followed by UTF-8 bytes.
+ * The header ends with the number of examples and is padded to a multiple of eight bytes.
+ * Each numeric block holds one double per example; each nominal block holds one value
+ * index per example as a byte, short or int depending on the size of the domain.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-24
+ */
+public class MFFBWriter {
+	/** the magic number at the start of every .mffb file */
+	public static final int MAGIC = 0x4246464D;
+	/** the version of the format */
+	public static final int VERSION = 1;
+	/** the file being written */
+	private FileChannel channel;
+	/** the write buffer */
+	private ByteBuffer buffer;
+
+	/**
+	 * Explicit constructor. Creates or truncates the specified file.
+	 *
+	 * @param  filename - the file to write
+	 * @throws IOException - if the file cannot be opened
+	 */
+	public MFFBWriter( String filename ) throws IOException {
+		this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Writes the specified data set and closes the file.
+	 *
+	 * @param  dataset - the data set to write
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void write( DataSet dataset ) throws IOException {
+		try {
+			Attributes attributes = dataset.getAttributes();
+			Examples examples = dataset.getExamples();
+
+			// Header
+			putInt(MAGIC);
+			putInt(VERSION);
+			putString(dataset.name == null ? "" : dataset.name);
+			putInt(attributes.size());
+			putInt(attributes.getClassIndex());
+			for(int j = 0; j < attributes.size(); j++) {
+				if( attributes.get(j) instanceof NumericAttribute ) {
+					ensure(1);
+					buffer.put((byte) 0);
+					putString(attributes.get(j).getName());
+				}
+				else {
+					NominalAttribute nomAtt = (NominalAttribute) attributes.get(j);
+					ensure(1);
+					buffer.put((byte) 1);
+					putString(nomAtt.getName());
+					putInt(nomAtt.size());
+					for(int v = 0; v < nomAtt.size(); v++) {
+						putString(nomAtt.getValue(v));
+					}
+				}
+			}
+			putInt(examples.size());
+
+			// Pad so that the blocks of doubles are aligned
+			long written = channel.position() + buffer.position();
+			ensure(8);
+			while( written++ % 8 != 0 ) buffer.put((byte) 0);
+
+			// One block per attribute
+			for(int j = 0; j < attributes.size(); j++) {
+				int width = getWidth(attributes.get(j));
+				for(int i = 0; i < examples.size(); i++) {
+					double value = examples.get(i).getDouble(j);
+					ensure(8);
+					if( width == 8 ) buffer.putDouble(value);
+					else if( width == 1 ) buffer.put((byte) value);
+					else if( width == 2 ) buffer.putShort((short) value);
+					else buffer.putInt((int) value);
+				}
+			}
+
+			flush();
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes used for each value of an attribute.
+	 *
+	 * @param  attribute - the attribute
+	 * @return 8 for numeric attributes, and 1, 2 or 4 for nominal attributes depending on the domain
+	 */
+	public static int getWidth( Attribute attribute ) {
+		if( attribute instanceof NumericAttribute ) return 8;
+		if( attribute.size() <= 256 ) return 1;
+		if( attribute.size() <= 65536 ) return 2;
+		return 4;
+	}
+
+	/**
+	 * Writes an int.
+	 *
+	 * @param  value - the value
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void putInt( int value ) throws IOException {
+		ensure(4);
+		buffer.putInt(value);
+	}
+
+	/**
+	 * Writes a string as its length followed by its UTF-8 bytes.
+	 *
+	 * @param  value - the string
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void putString( String value ) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		putInt(bytes.length);
+		for(int i = 0; i < bytes.length; i++) {
+			ensure(1);
+			buffer.put(bytes[i]);
+		}
+	}
+
+	/**
+	 * Makes room in the buffer for the specified number of bytes.
+	 *
+	 * @param  bytes - the number of bytes to be written
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void ensure( int bytes ) throws IOException {
+		if( buffer.remaining() < bytes ) flush();
+	}
+
+	/**
+	 * Writes the buffer to the file.
+	 *
+	 * @throws IOException - if the file cannot be written
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while( buffer.hasRemaining() ) channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Converts a data set to the binary format.
+	 * The -t option names the data set to convert and the -o option names the .mffb file to write.
+	 *
+	 * @param args - command-line arguments
+	 */
+	public static void main( String args[] ) {
+		try {
+			String input = null;
+			String output = null;
+			for( int i = 0; i < args.length - 1; i++ ) {
+				if( args[i].equals("-t") ) input = args[i+1];
+				if( args[i].equals("-o") ) output = args[i+1];
+			}
+			if( input == null || output == null ) {
+				throw new Exception("Usage: java MFFBWriter -t <file.mff> -o <file.mffb>");
+			}
+
+			DataSet dataset = new DataSet();
+			dataset.load(input);
+			new MFFBWriter(output).write(dataset);
+		} // try
+		catch ( Exception e ) {
+			System.out.println( e.getMessage() );
+			e.printStackTrace();
+		} // catch
+	}
+}
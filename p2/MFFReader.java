@@ -0,0 +1,512 @@
+/*
+ * MFFReader.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.InputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads data sets in Mark's file format byte by byte.
+ * Numeric values are parsed directly from the buffer without creating Strings,
+ * and nominal values are resolved through a hash table of each attribute's domain.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-22
+ */
+public class MFFReader {
+	/** powers of ten that are exact doubles */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	/** the stream being read, or null if reading a byte buffer */
+	private InputStream in;
+	/** the byte buffer being read, or null if reading a stream */
+	private ByteBuffer source;
+	/** the number of bytes read into the buffer so far */
+	private long filled;
+	/** the read buffer */
+	private byte[] buffer;
+	/** the position of the next unread byte in the buffer */
+	private int position;
+	/** the number of valid bytes in the buffer */
+	private int limit;
+	/** the start of the current token in the buffer */
+	private int tokenStart;
+	/** the end, exclusive, of the current token in the buffer */
+	private int tokenEnd;
+	/** the current line number for error messages */
+	private int line;
+	/** a header token read ahead by peekToken, or null */
+	private String peeked;
+
+	/**
+	 * Explicit constructor.
+	 *
+	 * @param in - the stream containing the data set
+	 */
+	public MFFReader( InputStream in ) {
+		this.in = in;
+		this.buffer = new byte[1 << 16];
+		this.position = 0;
+		this.limit = 0;
+		this.line = 1;
+	}
+
+	/**
+	 * Explicit constructor for reading a byte buffer, such as a memory-mapped file.
+	 *
+	 * @param source - the buffer containing the data set or part of it
+	 */
+	public MFFReader( ByteBuffer source ) {
+		this.source = source;
+		this.buffer = new byte[1 << 16];
+		this.position = 0;
+		this.limit = 0;
+		this.line = 1;
+	}
+
+	/**
+	 * Reads the @dataset declaration and returns the data set's name.
+	 *
+	 * @return the name of the data set
+	 * @throws Exception - if the first token is not @dataset
+	 */
+	public String readName() throws Exception {
+		if( !"@dataset".equals(nextToken()) )
+			throw new Exception("Parse error. First token is not @dataset");
+
+		String name = nextToken();
+		if( name == null )
+			throw new Exception("Parse error. Data set name is missing");
+		return name;
+	}
+
+	/**
+	 * Reads the attribute declarations up to and including the @examples keyword.
+	 * By convention, the last attribute is the class label after parsing.
+	 *
+	 * @param attributes - the attributes to which the declarations are added
+	 * @throws Exception - if a parse exception occurs
+	 */
+	public void readAttributes( Attributes attributes ) throws Exception {
+		while( "@attribute".equals(peekToken()) ) {
+			nextToken();
+			String name = nextToken();
+			if( name == null )
+				throw new Exception("Parse error. Attribute name is missing on line " + line);
+
+			// Numeric
+			if( "numeric".equals(peekToken()) ) {
+				nextToken();
+				attributes.add(new NumericAttribute(name));
+			}
+
+			// Nominal
+			else {
+				NominalAttribute nomAtt = new NominalAttribute(name);
+				while( peekToken() != null && !peekToken().equals("@attribute") && !peekToken().equals("@examples") )
+					nomAtt.addValue(nextToken());
+				attributes.add(nomAtt);
+			}
+		}
+
+		if( !"@examples".equals(nextToken()) )
+			throw new Exception("Parse error. @examples is missing");
+
+		// Set the last attribute to be class label
+		attributes.setClassIndex( attributes.size() - 1 );
+	}
+
+	/**
+	 * Reads the examples, one per line, and adds them to the data set.
+	 *
+	 * @param dataset - the data set to which examples are added
+	 * @throws Exception - if a value is invalid or a line has the wrong number of values
+	 */
+	public void readExamples( DataSet dataset ) throws Exception {
+		// The rest of the @examples line is ignored
+		skipLine();
+		readExampleLines(dataset);
+	}
+
+	/**
+	 * Reads lines of examples up to the end of the input and adds them to the data set.
+	 * Used directly to read a part of the examples section.
+	 *
+	 * @param dataset - the data set to which examples are added
+	 * @throws Exception - if a value is invalid or a line has the wrong number of values
+	 */
+	public void readExampleLines( DataSet dataset ) throws Exception {
+		Attributes attributes = dataset.getAttributes();
+		int n = attributes.size();
+
+		// Build the lookup tables of nominal domains once
+		ValueTable[] tables = new ValueTable[n];
+		for(int i = 0; i < n; i++) {
+			if( attributes.get(i) instanceof NominalAttribute ) {
+				tables[i] = new ValueTable((NominalAttribute) attributes.get(i));
+			}
+		}
+
+		while( true ) {
+			if( !skipBlanks() ) break;
+
+			// Skip empty line
+			if( buffer[position] == '\n' ) {
+				skipLine();
+				continue;
+			}
+
+			double[] values = new double[n];
+			for(int i = 0; i < n; i++) {
+				if( !nextValue() ) {
+					throw new Exception("Parse error. Line " + line + " has " + i + " values but " + n + " attributes");
+				}
+
+				// Numeric
+				if( tables[i] == null ) {
+					values[i] = parseDouble(tokenStart, tokenEnd);
+				}
+
+				// Nominal
+				else {
+					int index = tables[i].get(buffer, tokenStart, tokenEnd);
+					if( index < 0 ) {
+						throw new Exception("The nomimal attribte value " + tokenString() + " doesn't exist");
+					}
+					values[i] = index;
+				}
+			}
+
+			if( nextValue() ) {
+				throw new Exception("Parse error. Line " + line + " has more values than " + n + " attributes");
+			}
+			dataset.add(new Example(values));
+		}
+	}
+
+	/**
+	 * Returns the number of bytes consumed so far.
+	 *
+	 * @return the offset of the next unread byte in the input
+	 */
+	public long getOffset() {
+		return filled - (limit - position);
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 *
+	 * @throws IOException - if the stream cannot be closed
+	 */
+	public void close() throws IOException {
+		if( in != null ) in.close();
+	}
+
+	/**
+	 * Returns the next whitespace-separated header token without consuming it.
+	 *
+	 * @return the next token, or null at the end of the stream
+	 * @throws IOException - if the stream cannot be read
+	 */
+	private String peekToken() throws IOException {
+		if( peeked == null ) peeked = readToken();
+		return peeked;
+	}
+
+	/**
+	 * Returns and consumes the next whitespace-separated header token.
+	 *
+	 * @return the next token, or null at the end of the stream
+	 * @throws IOException - if the stream cannot be read
+	 */
+	private String nextToken() throws IOException {
+		String token = peekToken();
+		peeked = null;
+		return token;
+	}
+
+	/**
+	 * Reads a token, skipping any whitespace including line breaks.
+	 *
+	 * @return the token, or null at the end of the stream
+	 * @throws IOException - if the stream cannot be read
+	 */
+	private String readToken() throws IOException {
+		while( true ) {
+			if( !skipBlanks() ) return null;
+			if( buffer[position] != '\n' ) break;
+			position++;
+			line++;
+		}
+		scanToken();
+		return tokenString();
+	}
+
+	/**
+	 * Marks the next token on the current line as the current token.
+	 *
+	 * @return true if a token was found before the end of the line
+	 * @throws IOException - if the stream cannot be read
+	 */
+	private boolean nextValue() throws IOException {
+		if( !skipBlanks() || buffer[position] == '\n' ) return false;
+		scanToken();
+		return true;
+	}
+
+	/**
+	 * Skips spaces, tabs and carriage returns, but not line feeds.
+	 *
+	 * @return false at the end of the stream
+	 * @throws IOException - if the stream cannot be read
+	 */
+	private boolean skipBlanks() throws IOException {
+		while( true ) {
+			if( position == limit && !fill() ) return false;
+			byte b = buffer[position];
+			if( b != ' ' && b != '\t' && b != '\r' ) return true;
+			position++;
+		}
+	}
+
+	/**
+	 * Skips the rest of the current line including its line feed.
+	 *
+	 * @throws IOException - if the stream cannot be read
+	 */
+	public void skipLine() throws IOException {
+		while( true ) {
+			if( position == limit && !fill() ) return;
+			if( buffer[position++] == '\n' ) {
+				line++;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Marks the bytes up to the next whitespace as the current token.
+	 * The token is kept contiguous in the buffer.
+	 *
+	 * @throws IOException - if the stream cannot be read
+	 */
+	private void scanToken() throws IOException {
+		tokenStart = position;
+		while( true ) {
+			if( position == limit ) {
+				// Move the partial token to the front of a full buffer before refilling
+				if( limit == buffer.length ) {
+					int length = position - tokenStart;
+					if( tokenStart == 0 ) {
+						byte[] larger = new byte[buffer.length * 2];
+						System.arraycopy(buffer, 0, larger, 0, length);
+						buffer = larger;
+					}
+					else {
+						System.arraycopy(buffer, tokenStart, buffer, 0, length);
+					}
+					tokenStart = 0;
+					position = length;
+					limit = length;
+				}
+				if( !fill() ) break;
+			}
+			byte b = buffer[position];
+			if( b == ' ' || b == '\t' || b == '\r' || b == '\n' ) break;
+			position++;
+		}
+		tokenEnd = position;
+	}
+
+	/**
+	 * Reads more bytes after the current limit, or at the start of the buffer if everything was consumed.
+	 *
+	 * @return false at the end of the stream
+	 * @throws IOException - if the stream cannot be read
+	 */
+	private boolean fill() throws IOException {
+		if( position == limit && position == buffer.length ) {
+			position = 0;
+			limit = 0;
+		}
+		int read;
+		if( source != null ) {
+			read = Math.min(source.remaining(), buffer.length - limit);
+			source.get(buffer, limit, read);
+		}
+		else {
+			read = in.read(buffer, limit, buffer.length - limit);
+		}
+		if( read <= 0 ) return false;
+		limit += read;
+		filled += read;
+		return true;
+	}
+
+	/**
+	 * Returns the current token as a String.
+	 *
+	 * @return the current token
+	 */
+	private String tokenString() {
+		return new String(buffer, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses a decimal number in the buffer.
+	 * Plain decimals with up to 18 digits and small exponents are computed directly,
+	 * which is exact since the digits and the power of ten are both exact doubles;
+	 * anything else falls back to Double.parseDouble so results are always identical.
+	 *
+	 * @param  start - the first byte of the number
+	 * @param  end - the end of the number, exclusive
+	 * @return the parsed value
+	 * @throws NumberFormatException - if the bytes are not a number
+	 */
+	private double parseDouble( int start, int end ) {
+		int i = start;
+		boolean negative = false;
+		if( i < end && (buffer[i] == '-' || buffer[i] == '+') ) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean seenDigit = false;
+		boolean seenPoint = false;
+
+		for( ; i < end; i++ ) {
+			byte b = buffer[i];
+			if( b >= '0' && b <= '9' ) {
+				seenDigit = true;
+				if( mantissa != 0 || b != '0' ) digits++;
+				if( digits > 18 ) return Double.parseDouble(tokenString());
+				mantissa = mantissa * 10 + (b - '0');
+				if( seenPoint ) exponent--;
+			}
+			else if( b == '.' && !seenPoint ) {
+				seenPoint = true;
+			}
+			else {
+				break;
+			}
+		}
+
+		// Optional exponent
+		if( i < end && seenDigit && (buffer[i] == 'e' || buffer[i] == 'E') ) {
+			i++;
+			boolean negativeExponent = false;
+			if( i < end && (buffer[i] == '-' || buffer[i] == '+') ) {
+				negativeExponent = buffer[i] == '-';
+				i++;
+			}
+			int value = 0;
+			int exponentDigits = 0;
+			for( ; i < end && buffer[i] >= '0' && buffer[i] <= '9' && exponentDigits < 4; i++ ) {
+				value = value * 10 + (buffer[i] - '0');
+				exponentDigits++;
+			}
+			if( exponentDigits == 0 ) return Double.parseDouble(tokenString());
+			exponent += negativeExponent ? -value : value;
+		}
+
+		// Anything unusual, such as NaN, hex or type suffixes, is left to the JDK
+		if( i != end || !seenDigit || mantissa > (1L << 53) || exponent < -22 || exponent > 22 ) {
+			return Double.parseDouble(tokenString());
+		}
+
+		double value = (double) mantissa;
+		if( exponent < 0 ) value /= POWERS_OF_TEN[-exponent];
+		else value *= POWERS_OF_TEN[exponent];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * An open-addressing hash table from the bytes of a nominal value to its index.
+	 */
+	private static class ValueTable {
+		/** the bytes of the values, or null for empty slots */
+		private byte[][] keys;
+		/** the index of the value in each slot */
+		private int[] indices;
+
+		/**
+		 * Explicit constructor. Builds the table for a nominal attribute's domain.
+		 * Later duplicates win, as in NominalAttribute.getIndex.
+		 *
+		 * @param attribute - the nominal attribute
+		 */
+		ValueTable( NominalAttribute attribute ) {
+			int capacity = Integer.highestOneBit(Math.max(attribute.size(), 1) * 4);
+			keys = new byte[capacity][];
+			indices = new int[capacity];
+
+			for(int index = 0; index < attribute.size(); index++) {
+				byte[] key = attribute.getValue(index).getBytes(StandardCharsets.UTF_8);
+				int slot = hash(key, 0, key.length) & (capacity - 1);
+				while( keys[slot] != null && !equals(keys[slot], key, 0, key.length) ) {
+					slot = (slot + 1) & (capacity - 1);
+				}
+				keys[slot] = key;
+				indices[slot] = index;
+			}
+		}
+
+		/**
+		 * Returns the index of the value stored in the given bytes.
+		 *
+		 * @param  bytes - the buffer holding the value
+		 * @param  start - the first byte of the value
+		 * @param  end - the end of the value, exclusive
+		 * @return the index of the value, or -1 if it is not in the domain
+		 */
+		int get( byte[] bytes, int start, int end ) {
+			int slot = hash(bytes, start, end) & (keys.length - 1);
+			while( keys[slot] != null ) {
+				if( equals(keys[slot], bytes, start, end) ) return indices[slot];
+				slot = (slot + 1) & (keys.length - 1);
+			}
+			return -1;
+		}
+
+		/**
+		 * Hashes a range of bytes.
+		 *
+		 * @param  bytes - the bytes
+		 * @param  start - the first byte
+		 * @param  end - the end, exclusive
+		 * @return the hash code
+		 */
+		private static int hash( byte[] bytes, int start, int end ) {
+			int h = 0;
+			for(int i = start; i < end; i++) {
+				h = 31 * h + bytes[i];
+			}
+			return h ^ (h >>> 16);
+		}
+
+		/**
+		 * Compares a key with a range of bytes.
+		 *
+		 * @param  key - the key
+		 * @param  bytes - the bytes
+		 * @param  start - the first byte
+		 * @param  end - the end, exclusive
+		 * @return true if they are equal
+		 */
+		private static boolean equals( byte[] key, byte[] bytes, int start, int end ) {
+			if( key.length != end - start ) return false;
+			for(int i = 0; i < key.length; i++) {
+				if( key[i] != bytes[start + i] ) return false;
+			}
+			return true;
+		}
+	}
+}
@@ -5,20 +5,71 @@
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
 
 /**
  * Naive Bayes Classifier Class
+ * Training feeds the estimators, which are then compiled into flat log-space tables for scoring
+ * Updates change the estimators, and the tables are recompiled and published as a new snapshot
+ * the next time an example is scored, so scoring never sees a half-updated model
  *
  * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
  * @since 	2018-10-15
  */
-public class NaiveBayes extends Classifier implements Serializable, OptionHandler {
+public class NaiveBayes extends Classifier implements Serializable, OptionHandler, FoldTrainable, UpdateableClassifier {
+	private static final long serialVersionUID = 1L;
+	/* number of training examples counted by one task */
+	protected static final int CHUNK_SIZE = 65536;
+	/* number of examples scored together by classify */
+	protected static final int BLOCK_SIZE = 4096;
+	/* number of threads training, or 0 for all cores */
+	protected int threads = 0;
+	/* estimators counted on each cross-validation partition, for deriving fold models */
+	protected transient NaiveBayes[] folds;
+	/* number of most recent examples the model is trained on, or 0 for all examples */
+	protected int window = 0;
+	/* values of the examples in the window, row by row in a ring */
+	protected double[] windowValues;
+	/* first row of the window in the ring */
+	protected int windowStart;
+	/* number of examples in the window */
+	protected int windowSize;
+	/* true if the estimators changed since the tables were compiled */
+	protected volatile boolean stale = false;
 	/* attributes of the dataset */
 	protected Attributes attributes;
 	/* distribution of class labels */
 	protected CategoricalEstimator classDistribution;
 	/* distribution of all attributes for all possible class labels */
 	protected ArrayList< ArrayList<Estimator> > classConditionalDistributions;
+	/* the published scoring tables, replaced as a whole by compile */
+	protected volatile Tables tables;
+
+	/**
+	 * Scoring tables compiled from the estimators, never changed once published
+	 * The layout of the attributes is part of the tables, so a scorer reads it from the same snapshot
+	 */
+	protected static class Tables implements Serializable {
+		private static final long serialVersionUID = 1L;
+		/* nominal attributes scored, excluding the class */
+		protected int[] nominalDims;
+		/* first entry of each nominal attribute in a class's row of logProbabilities */
+		protected int[] nominalOffsets;
+		/* number of entries of a class's row of logProbabilities */
+		protected int nominalWidth;
+		/* numeric attributes scored */
+		protected int[] numericDims;
+		/* log prior of each class label, compiled from classDistribution */
+		protected double[] logPriors;
+		/* log probability of every value of every nominal attribute, indexed by [class][attribute][value] and flattened */
+		protected double[] logProbabilities;
+		/* mean of every numeric attribute, indexed by [class][attribute] and flattened */
+		protected double[] means;
+		/* 1 / (2 variance) of every numeric attribute, indexed like means */
+		protected double[] scales;
+		/* log of the normalizing constant of every numeric attribute, indexed like means */
+		protected double[] logNormalizers;
+	}
 
 	/**
 	 * Default constructor
@@ -47,11 +98,25 @@ public class NaiveBayes extends Classifier implements Serializable, OptionHandle
 	public Performance classify( DataSet dataSet ) throws Exception {
 		Performance performance = new Performance(dataSet.getAttributes());
 		int classIndex = dataSet.getAttributes().getClassIndex();
+		int classes = dataSet.getAttributes().getClassAttribute().size();
+		Examples examples = dataSet.getExamples();
+		int n = examples.size();
+
+		// Columnar data set, look up the class labels at once
+		int[] labels = null;
+		if( dataSet.isColumnar() ) {
+			labels = dataSet.getColumns().getCodes(classIndex, examples);
+		}
 
-		for(Example example : dataSet.getExamples()) {
-			int actual = example.get(classIndex).intValue();
-			double[] predictions = this.getDistribution(example);
-			performance.add(actual, predictions);
+		// Score blocks of examples into one reused buffer
+		double[] distributions = new double[Math.min(n, BLOCK_SIZE) * classes];
+		for(int start = 0; start < n; start += BLOCK_SIZE) {
+			int end = Math.min(n, start + BLOCK_SIZE);
+			this.getDistributions(dataSet, start, end, distributions);
+			for(int r = start; r < end; r++) {
+				int actual = labels != null ? labels[r] : (int) examples.get(r).getDouble(classIndex);
+				performance.add(actual, distributions, (r - start) * classes);
+			}
 		}
 
 		return performance;
@@ -74,53 +139,509 @@ public class NaiveBayes extends Classifier implements Serializable, OptionHandle
 	 * @return - a NaiveBayes object with untrained
 	 */
 	public Classifier clone() {
-		return new NaiveBayes();
+		NaiveBayes nb = new NaiveBayes();
+		nb.setThreads(this.threads);
+		nb.setWindow(this.window);
+		return nb;
 	}
 
 	/**
 	 * Get distribution of predicted class labels given an example
+	 * The class scores are summed in log space from the compiled tables, so wide datasets
+	 * do not underflow, and then normalized to posterior probabilities
 	 * 
 	 * @param  example   - an example
 	 * @return           - a distribution of predicted class labels
 	 * @throws Exception 
 	 */
 	public double[] getDistribution( Example example ) throws Exception {
-		double[] classProbDist = new double[this.classConditionalDistributions.size()];
-		double probProduct;
+		Tables tables = this.stale ? this.publish() : this.tables;
+		int classes = tables.logPriors.length;
+		double[] classProbDist = new double[classes];
 
 		// All classes
-		for(int i = 0; i < this.classConditionalDistributions.size(); i++) {
-			probProduct = 1.0;
+		for(int c = 0; c < classes; c++) {
+			double score = tables.logPriors[c];
 
-			// All attributes
-			for(int j = 0; j < this.classConditionalDistributions.get(i).size(); j++) {
-				probProduct *= this.classConditionalDistributions.get(i).get(j).getProbability(example.get(j));
+			// Nominal attributes
+			int base = c * tables.nominalWidth;
+			for(int j = 0; j < tables.nominalDims.length; j++) {
+				score += tables.logProbabilities[base + tables.nominalOffsets[j] + (int) example.getDouble(tables.nominalDims[j])];
 			}
 
-			classProbDist[i] = probProduct * this.classDistribution.getProbability(i);
+			// Numeric attributes
+			base = c * tables.numericDims.length;
+			for(int j = 0; j < tables.numericDims.length; j++) {
+				double difference = example.getDouble(tables.numericDims[j]) - tables.means[base + j];
+				score += tables.logNormalizers[base + j] - difference * difference * tables.scales[base + j];
+			}
+
+			classProbDist[c] = score;
 		}
 
+		normalize(classProbDist, 0, classes);
 		return classProbDist;
 	}
 
+	/**
+	 * Get distributions of predicted class labels for a range of examples
+	 * The scores of all examples are summed one attribute column at a time, in the same order
+	 * as getDistribution, so each inner loop is a gather from one table
+	 * 
+	 * @param  dataset       - a DataSet object
+	 * @param  start         - the first example
+	 * @param  end           - the end of the range
+	 * @param  distributions - the buffer receiving the distributions, of at least (end - start) * c entries
+	 * @throws Exception 
+	 */
+	public void getDistributions( DataSet dataset, int start, int end, double[] distributions ) throws Exception {
+		Tables tables = this.stale ? this.publish() : this.tables;
+		int classes = tables.logPriors.length;
+		int count = end - start;
+		int nominalCount = tables.nominalDims.length;
+		double[] values = this.getColumns(tables, dataset, start, end);
+
+		for(int r = 0; r < count; r++) {
+			System.arraycopy(tables.logPriors, 0, distributions, r * classes, classes);
+		}
+
+		// Nominal attributes
+		for(int j = 0; j < nominalCount; j++) {
+			int column = j * count;
+			for(int c = 0; c < classes; c++) {
+				int base = c * tables.nominalWidth + tables.nominalOffsets[j];
+				for(int r = 0, i = c; r < count; r++, i += classes) {
+					distributions[i] += tables.logProbabilities[base + (int) values[column + r]];
+				}
+			}
+		}
+
+		// Numeric attributes
+		for(int j = 0; j < tables.numericDims.length; j++) {
+			int column = (nominalCount + j) * count;
+			for(int c = 0; c < classes; c++) {
+				int index = c * tables.numericDims.length + j;
+				double mean = tables.means[index];
+				double scale = tables.scales[index];
+				double logNormalizer = tables.logNormalizers[index];
+				for(int r = 0, i = c; r < count; r++, i += classes) {
+					double difference = values[column + r] - mean;
+					distributions[i] += logNormalizer - difference * difference * scale;
+				}
+			}
+		}
+
+		for(int r = 0; r < count; r++) {
+			normalize(distributions, r * classes, classes);
+		}
+	}
+
+	/**
+	 * Copy the values of the scored attributes for a range of examples, one column after another
+	 * The nominal attributes come first, then the numeric ones
+	 * 
+	 * @param  tables  - the tables giving the attributes scored
+	 * @param  dataset - a DataSet object
+	 * @param  start   - the first example
+	 * @param  end     - the end of the range
+	 * @return         - the values, (end - start) per attribute
+	 */
+	private double[] getColumns( Tables tables, DataSet dataset, int start, int end ) {
+		Examples examples = dataset.getExamples();
+		int count = end - start;
+		int nominalCount = tables.nominalDims.length;
+		int width = nominalCount + tables.numericDims.length;
+		double[] values = new double[width * count];
+
+		// Row storage, read each example once
+		if( !dataset.isColumnar() ) {
+			for(int r = 0; r < count; r++) {
+				Example example = examples.get(start + r);
+				for(int j = 0; j < nominalCount; j++) {
+					values[j * count + r] = example.getDouble(tables.nominalDims[j]);
+				}
+				for(int j = 0; j < tables.numericDims.length; j++) {
+					values[(nominalCount + j) * count + r] = example.getDouble(tables.numericDims[j]);
+				}
+			}
+			return values;
+		}
+
+		ColumnStore columns = dataset.getColumns();
+		for(int k = 0; k < width; k++) {
+			int j = k < nominalCount ? tables.nominalDims[k] : tables.numericDims[k - nominalCount];
+			if( columns.isNumericColumn(j) ) {
+				double[] column = columns.getNumericColumn(j);
+				for(int r = 0; r < count; r++) {
+					values[k * count + r] = column[examples.getRow(start + r)];
+				}
+			}
+			else {
+				for(int r = 0; r < count; r++) {
+					values[k * count + r] = columns.getCode(examples.getRow(start + r), j);
+				}
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Turn the log scores of one example into posterior probabilities, in place
+	 * The scores are left as probabilities without normalizing if no class has a finite score
+	 * 
+	 * @param scores  - the buffer of scores
+	 * @param base    - the first score of the example
+	 * @param classes - the number of class labels
+	 */
+	protected static void normalize( double[] scores, int base, int classes ) {
+		double max = Double.NEGATIVE_INFINITY;
+		for(int c = base; c < base + classes; c++) {
+			if( scores[c] > max ) max = scores[c];
+		}
+
+		if( Double.isInfinite(max) ) {
+			for(int c = base; c < base + classes; c++) {
+				scores[c] = Math.exp(scores[c]);
+			}
+			return;
+		}
+		double sum = 0.0;
+		for(int c = base; c < base + classes; c++) {
+			scores[c] = Math.exp(scores[c] - max);
+			sum += scores[c];
+		}
+		for(int c = base; c < base + classes; c++) {
+			scores[c] /= sum;
+		}
+	}
+
+	/**
+	 * Compile the trained estimators into flat tables for scoring
+	 * Nominal attributes get the log probability of each value, and numeric attributes
+	 * get the mean, 1 / (2 variance) and log normalizing constant of their Gaussian
+	 */
+	protected void compile() {
+		int classIndex = this.attributes.getClassIndex();
+		int classes = this.classConditionalDistributions.size();
+
+		int nominalCount = 0;
+		int numericCount = 0;
+		for(int j = 0; j < this.attributes.size(); j++) {
+			if( j == classIndex ) continue;
+			if( this.attributes.get(j) instanceof NumericAttribute ) numericCount++;
+			else nominalCount++;
+		}
+
+		Tables tables = new Tables();
+		tables.nominalDims = new int[nominalCount];
+		tables.nominalOffsets = new int[nominalCount];
+		tables.numericDims = new int[numericCount];
+		tables.nominalWidth = 0;
+		for(int j = 0, a = 0, b = 0; j < this.attributes.size(); j++) {
+			if( j == classIndex ) continue;
+			if( this.attributes.get(j) instanceof NumericAttribute ) {
+				tables.numericDims[b++] = j;
+			}
+			else {
+				tables.nominalDims[a] = j;
+				tables.nominalOffsets[a++] = tables.nominalWidth;
+				tables.nominalWidth += this.attributes.get(j).size();
+			}
+		}
+
+		tables.logPriors = new double[classes];
+		tables.logProbabilities = new double[classes * tables.nominalWidth];
+		tables.means = new double[classes * numericCount];
+		tables.scales = new double[classes * numericCount];
+		tables.logNormalizers = new double[classes * numericCount];
+		for(int c = 0; c < classes; c++) {
+			ArrayList<Estimator> estimators = this.classConditionalDistributions.get(c);
+			tables.logPriors[c] = Math.log(this.classDistribution.getProbability((double) c));
+
+			for(int j = 0; j < nominalCount; j++) {
+				Estimator estimator = estimators.get(tables.nominalDims[j]);
+				int base = c * tables.nominalWidth + tables.nominalOffsets[j];
+				int size = this.attributes.get(tables.nominalDims[j]).size();
+				for(int v = 0; v < size; v++) {
+					tables.logProbabilities[base + v] = Math.log(estimator.getProbability((double) v));
+				}
+			}
+
+			for(int j = 0; j < numericCount; j++) {
+				GaussianEstimator estimator = (GaussianEstimator) estimators.get(tables.numericDims[j]);
+				double variance = estimator.getVariance();
+				int index = c * numericCount + j;
+				tables.means[index] = estimator.getMean();
+				tables.scales[index] = 1.0 / (2.0 * variance);
+				tables.logNormalizers[index] = Math.log(GaussianEstimator.oneOverSqrt2PI / Math.sqrt(variance));
+			}
+		}
+		this.tables = tables;
+	}
+
+	/**
+	 * Compile the estimators if they changed, and publish the new tables
+	 * 
+	 * @return - the tables of the current estimators
+	 */
+	protected synchronized Tables publish() {
+		if( this.stale ) {
+			this.compile();
+			this.stale = false;
+		}
+		return this.tables;
+	}
+
+	/**
+	 * Update this classifier with one more example
+	 * With a window, the oldest example is removed once the window is full
+	 * The change is published the next time an example is scored
+	 * 
+	 * @param  example   - an example with a class label
+	 * @throws Exception - if this classifier is not trained
+	 */
+	public synchronized void update( Example example ) throws Exception {
+		if( this.classConditionalDistributions == null ) {
+			throw new Exception("NaiveBayes must be trained before it is updated");
+		}
+
+		if( this.window > 0 ) {
+			int size = this.attributes.size();
+			if( this.windowValues == null || this.windowValues.length != this.window * size ) {
+				this.windowValues = new double[this.window * size];
+				this.windowStart = 0;
+				this.windowSize = 0;
+			}
+			if( this.windowSize == this.window ) {
+				this.remove(this.windowValues, this.windowStart * size);
+				this.windowStart = (this.windowStart + 1) % this.window;
+				this.windowSize--;
+			}
+			int row = (this.windowStart + this.windowSize) % this.window;
+			for(int i = 0; i < size; i++) {
+				this.windowValues[row * size + i] = example.getDouble(i);
+			}
+			this.windowSize++;
+		}
+
+		this.add(example);
+		this.stale = true;
+	}
+
+	/**
+	 * Add one example to the estimators
+	 * 
+	 * @param  example   - an example with a class label
+	 * @throws Exception 
+	 */
+	protected void add( Example example ) throws Exception {
+		int classIndex = this.attributes.getClassIndex();
+		int actualClassLabel = (int) example.getDouble(classIndex);
+		this.classDistribution.add(actualClassLabel);
+		for(int i = 0; i < this.attributes.size(); i++) {
+			if(i != classIndex) {
+				this.classConditionalDistributions.get(actualClassLabel).get(i).add(example.getDouble(i));
+			}
+		}
+	}
+
+	/**
+	 * Remove one example, given by its values, from the estimators
+	 * 
+	 * @param  values    - the values of examples, row by row
+	 * @param  base      - the first value of the example
+	 * @throws Exception 
+	 */
+	protected void remove( double[] values, int base ) throws Exception {
+		int classIndex = this.attributes.getClassIndex();
+		int actualClassLabel = (int) values[base + classIndex];
+		this.classDistribution.remove(actualClassLabel);
+		for(int i = 0; i < this.attributes.size(); i++) {
+			if(i != classIndex) {
+				this.classConditionalDistributions.get(actualClassLabel).get(i).remove(values[base + i]);
+			}
+		}
+	}
+
 	/**
 	 * Option setting for this class
 	 * @param options - option list string
 	 */
 	public void setOptions( String[] options ) throws Exception {
+		for( int i = 0; i < options.length; i++ ) {
+			if( options[i].equals("-threads") && options.length > i+1 ) {
+				this.setThreads( Integer.parseInt(options[i+1]) );
+			}
+			else if( options[i].equals("-window") && options.length > i+1 ) {
+				this.setWindow( Integer.parseInt(options[i+1]) );
+			}
+		}
+	}
 
+	/**
+	 * Set the number of most recent examples the model is trained on
+	 * 
+	 * @param window - an integer value, or 0 for all examples
+	 */
+	public void setWindow( int window ) {
+		this.window = window;
+	}
+
+	/**
+	 * Set the number of threads training
+	 * 
+	 * @param threads - an integer value, or 0 for all cores
+	 */
+	public void setThreads( int threads ) {
+		this.threads = threads;
 	}
 
 	/**
 	 * Train this classifier by given dataset
 	 * This train method will create a number of estimators and feed them with examples
 	 * As a result, the classDistribution and classConditionalDistributions are constructed
+	 * Large datasets are split into fixed chunks counted on all threads, and the partial
+	 * estimators are merged in chunk order, so the model does not depend on the number of threads
+	 * With a window, only the most recent examples of the dataset fill it
 	 * 
 	 * @param  dataset   - a given dataset
 	 * @throws Exception 
 	 */
-	public void train( DataSet dataset ) throws Exception {
+	public synchronized void train( DataSet dataset ) throws Exception {
 		this.attributes = dataset.getAttributes();
+		int n = dataset.getExamples().size();
+		this.stale = false;
+
+		if( this.window > 0 ) {
+			this.createEstimators();
+			this.windowValues = new double[this.window * this.attributes.size()];
+			this.windowStart = 0;
+			this.windowSize = 0;
+			for(int r = Math.max(0, n - this.window); r < n; r++) {
+				this.update(dataset.getExamples().get(r));
+			}
+			this.compile();
+			this.stale = false;
+			return;
+		}
+
+		// Columnar data set, look up the class labels once for all chunks
+		int[] labels = null;
+		if( dataset.isColumnar() ) {
+			labels = dataset.getColumns().getCodes(this.attributes.getClassIndex(), dataset.getExamples());
+		}
+
+		int count = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		if( count <= 1 ) {
+			this.createEstimators();
+			this.add(dataset, labels, 0, n);
+			this.compile();
+			return;
+		}
+
+		ArrayList<Callable<NaiveBayes>> tasks = new ArrayList<Callable<NaiveBayes>>();
+		for(int c = 0; c < count; c++) {
+			final int start = c * CHUNK_SIZE;
+			final int end = Math.min(n, start + CHUNK_SIZE);
+			final int[] codes = labels;
+			tasks.add(() -> {
+				NaiveBayes part = new NaiveBayes();
+				part.attributes = this.attributes;
+				part.createEstimators();
+				part.add(dataset, codes, start, end);
+				return part;
+			});
+		}
+
+		ArrayList<NaiveBayes> parts = Utils.invokeAll(this.threads, tasks);
+		this.classDistribution = parts.get(0).classDistribution;
+		this.classConditionalDistributions = parts.get(0).classConditionalDistributions;
+		for(int c = 1; c < parts.size(); c++) {
+			this.merge(parts.get(c));
+		}
+		this.compile();
+	}
+
+	/**
+	 * Count the examples of each cross-validation partition of a dataset
+	 * Every partition is counted once, on all threads, instead of once per fold it trains
+	 * With a window, a fold's model depends on the order of its examples, so each fold is retrained
+	 * 
+	 * @param  dataset   - a dataset partitioned by setFolds
+	 * @return           - true if the fold models can be derived, false with a window
+	 * @throws Exception 
+	 */
+	public boolean trainFolds( DataSet dataset ) throws Exception {
+		if( this.window > 0 ) {
+			return false;
+		}
+
+		this.attributes = dataset.getAttributes();
+		int n = dataset.getExamples().size();
+		int count = dataset.getFolds();
+
+		// Index the examples of each partition
+		int[] sizes = new int[count];
+		for(int r = 0; r < n; r++) {
+			sizes[dataset.getPartition(r)]++;
+		}
+		int[][] indices = new int[count][];
+		for(int p = 0; p < count; p++) {
+			indices[p] = new int[sizes[p]];
+			sizes[p] = 0;
+		}
+		for(int r = 0; r < n; r++) {
+			int p = dataset.getPartition(r);
+			indices[p][sizes[p]++] = r;
+		}
+
+		ArrayList<Callable<NaiveBayes>> tasks = new ArrayList<Callable<NaiveBayes>>();
+		for(int p = 0; p < count; p++) {
+			final DataSet partition = new DataSet(dataset, indices[p]);
+			tasks.add(() -> {
+				NaiveBayes part = new NaiveBayes();
+				part.attributes = this.attributes;
+				part.createEstimators();
+				int[] labels = null;
+				if( partition.isColumnar() ) {
+					labels = partition.getColumns().getCodes(this.attributes.getClassIndex(), partition.getExamples());
+				}
+				part.add(partition, labels, 0, partition.getExamples().size());
+				return part;
+			});
+		}
+		this.folds = Utils.invokeAll(this.threads, tasks).toArray(new NaiveBayes[count]);
+		return true;
+	}
+
+	/**
+	 * Get the classifier of a cross-validation fold, trained on every other partition
+	 * The counts of the other partitions are merged, so the cost does not depend on the number of examples
+	 * 
+	 * @param  fold      - the partition held out for testing
+	 * @return           - a trained NaiveBayes object
+	 * @throws Exception - if trainFolds was not called
+	 */
+	public Classifier getFoldClassifier( int fold ) throws Exception {
+		if( this.folds == null ) {
+			throw new Exception("Partitions are not counted");
+		}
+
+		NaiveBayes nb = new NaiveBayes();
+		nb.setThreads(this.threads);
+		nb.attributes = this.attributes;
+		nb.createEstimators();
+		for(int p = 0; p < this.folds.length; p++) {
+			if( p != fold ) nb.merge(this.folds[p]);
+		}
+		nb.compile();
+		return nb;
+	}
+
+	/**
+	 * Create empty estimators for the attributes of this classifier
+	 */
+	protected void createEstimators() {
 		this.classDistribution = new CategoricalEstimator(this.attributes.size());
 		this.classConditionalDistributions = new ArrayList< ArrayList<Estimator> >();
 
@@ -142,17 +663,56 @@ public class NaiveBayes extends Classifier implements Serializable, OptionHandle
 				}
 			}
 		}
+	}
+
+	/**
+	 * Feed the estimators with a range of examples
+	 * 
+	 * @param  dataset   - a given dataset
+	 * @param  labels    - the class labels of a columnar dataset, or null
+	 * @param  start     - the first example
+	 * @param  end       - the end of the range
+	 * @throws Exception 
+	 */
+	protected void add( DataSet dataset, int[] labels, int start, int end ) throws Exception {
+		int classIndex = this.attributes.getClassIndex();
+		Examples examples = dataset.getExamples();
+
+		// Columnar data set, feed estimators one attribute column at a time
+		if( labels != null ) {
+			ColumnStore columns = dataset.getColumns();
+
+			for(int r = start; r < end; r++) {
+				this.classDistribution.add(labels[r]);
+			}
+
+			for(int i = 0; i < this.attributes.size(); i++) {
+				if(i == classIndex) continue;
+
+				if( columns.isNumericColumn(i) ) {
+					double[] column = columns.getNumericColumn(i);
+					for(int r = start; r < end; r++) {
+						this.classConditionalDistributions.get(labels[r]).get(i).add(column[examples.getRow(r)]);
+					}
+				}
+				else {
+					for(int r = start; r < end; r++) {
+						this.classConditionalDistributions.get(labels[r]).get(i).add(columns.getCode(examples.getRow(r), i));
+					}
+				}
+			}
+			return;
+		}
 
-		// Feed all estimators with all examples
-		int classIndex = dataset.getAttributes().getClassIndex();
-		for(Example example : dataset.getExamples()) {
+		for(int r = start; r < end; r++) {
+			Example example = examples.get(r);
 			for(int i = 0; i < this.attributes.size(); i++) {
 
-				int actualClassLabel = example.get(classIndex).intValue();
+				int actualClassLabel = (int) example.getDouble(classIndex);
 				
 				// Other attributes than class label
 				if(i != classIndex) {
-					this.classConditionalDistributions.get(actualClassLabel).get(i).add(example.get(i));
+					this.classConditionalDistributions.get(actualClassLabel).get(i).add(example.getDouble(i));
 				}
 
 				// Class label
@@ -163,6 +723,21 @@ public class NaiveBayes extends Classifier implements Serializable, OptionHandle
 		}
 	}
 
+	/**
+	 * Merge the estimators of a classifier trained on other examples into this one
+	 * 
+	 * @param  other     - a classifier with the same attributes
+	 * @throws Exception 
+	 */
+	protected void merge( NaiveBayes other ) throws Exception {
+		this.classDistribution.merge(other.classDistribution);
+		for(int i = 0; i < this.classConditionalDistributions.size(); i++) {
+			for(int j = 0; j < this.classConditionalDistributions.get(i).size(); j++) {
+				this.classConditionalDistributions.get(i).get(j).merge(other.classConditionalDistributions.get(i).get(j));
+			}
+		}
+	}
+
 	/**
 	 * Main function for test this class
 	 * 
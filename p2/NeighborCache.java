@@ -0,0 +1,180 @@
+/*
+ * NeighborCache.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+/**
+ * Sorted lists of the nearest neighbors of every example of a data set, for cross validation of IBk.
+ * The neighbors are searched once over the full data set, truncated to K_max, and shared by all folds:
+ * a fold answers a query by skipping the neighbors in the query's own fold. If that leaves fewer
+ * than k neighbors of a truncated list, the fold's training examples are searched directly instead.
+ *
+ * Unlike a normal cross validation, numeric attributes are scaled once with the minimum and
+ * maximum of the full data set rather than of each fold's training set, so accuracy on numeric
+ * data sets may differ slightly. Data sets with only nominal attributes give identical results.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-31
+ */
+public class NeighborCache {
+	/** the number of queries searched at a time while building the lists */
+	static final int CHUNK_SIZE = 4096;
+	/** the data set, partitioned into folds */
+	private DataSet dataset;
+	/** a classifier trained on the full data set */
+	private IBk ibk;
+	/** the length of a full neighbor list */
+	private int kMax;
+	/** the neighbors of each example from nearest to farthest, kMax per example */
+	private int[] neighbors;
+	/** the number of neighbors of each example */
+	private int[] counts;
+	/** the class label of each example */
+	private int[] labels;
+	/** the searches over the training examples of each fold, created when first needed */
+	private NeighborSearch[] foldSearches;
+
+	/**
+	 * Explicit constructor. Searches the neighbors of every example.
+	 *
+	 * @param  ibk - a classifier whose index and threads are used for the search
+	 * @param  dataset - the data set, already partitioned into folds
+	 * @param  kMax - the number of neighbors kept for each example
+	 * @throws Exception - if the classifier edits or condenses its training set
+	 */
+	public NeighborCache( IBk ibk, DataSet dataset, int kMax ) throws Exception {
+		if( ibk.edit || ibk.condense ) {
+			throw new Exception("A neighbor cache cannot be used with an edited or condensed training set");
+		}
+		this.dataset = dataset;
+		this.kMax = kMax;
+		this.ibk = (IBk) ibk.clone();
+		this.ibk.setK(kMax);
+		this.ibk.train(dataset);
+		this.foldSearches = new NeighborSearch[dataset.getFolds()];
+
+		Examples examples = dataset.getExamples();
+		int n = examples.size();
+		int classIndex = dataset.getAttributes().getClassIndex();
+		this.neighbors = new int[n * kMax];
+		this.counts = new int[n];
+		this.labels = new int[n];
+
+		for(int start = 0; start < n; start += CHUNK_SIZE) {
+			int end = Math.min(start + CHUNK_SIZE, n);
+			Example[] queries = new Example[end - start];
+			NeighborHeap[] heaps = new NeighborHeap[end - start];
+			for(int q = 0; q < queries.length; q++) {
+				queries[q] = this.ibk.scale(examples.get(start + q));
+				heaps[q] = new NeighborHeap(kMax);
+			}
+			this.ibk.search(queries, heaps);
+
+			for(int q = 0; q < queries.length; q++) {
+				int i = start + q;
+				heaps[q].sort();
+				for(int j = 0; j < heaps[q].size(); j++) {
+					neighbors[i * kMax + j] = heaps[q].getIndex(j);
+				}
+				counts[i] = heaps[q].size();
+				labels[i] = (int) examples.get(i).getDouble(classIndex);
+			}
+		}
+	}
+
+	/**
+	 * Returns a K_max large enough that a fold rarely leaves fewer than k neighbors of a list.
+	 *
+	 * @param  k - the number of neighbors voting
+	 * @return the default K_max
+	 */
+	public static int getDefaultKMax( int k ) {
+		return 2 * k + 8;
+	}
+
+	/**
+	 * Evaluates IBk on a fold, trained on all other folds.
+	 *
+	 * @param  p - the number of the fold
+	 * @param  k - the number of neighbors voting, at most K_max
+	 * @return the performance on the fold
+	 * @throws Exception
+	 */
+	public Performance evaluate( int p, int k ) throws Exception {
+		return this.evaluate(p, k, k)[0];
+	}
+
+	/**
+	 * Evaluates IBk on a fold for every k in a range, trained on all other folds.
+	 *
+	 * @param  p - the number of the fold
+	 * @param  kMin - the smallest k
+	 * @param  kMax - the largest k, at most K_max
+	 * @return the performance on the fold for each k from kMin to kMax
+	 * @throws Exception
+	 */
+	public Performance[] evaluate( int p, int kMin, int kMax ) throws Exception {
+		Performance[] performances = new Performance[kMax - kMin + 1];
+		for(int i = 0; i < performances.length; i++) {
+			performances[i] = new Performance(dataset.getAttributes());
+		}
+		double[] votes = new double[dataset.getAttributes().getClassAttribute().size()];
+		int[] found = new int[kMax];
+
+		for(int i = 0; i < counts.length; i++) {
+			if( dataset.getPartition(i) != p ) continue;
+
+			int count = 0;
+			for(int j = 0; j < counts[i] && count < kMax; j++) {
+				int neighbor = neighbors[i * this.kMax + j];
+				if( dataset.getPartition(neighbor) != p ) {
+					found[count++] = labels[neighbor];
+				}
+			}
+
+			// The fold removed too many neighbors of a truncated list
+			if( count < kMax && counts[i] == this.kMax ) {
+				count = this.search(p, i, kMax, found);
+			}
+
+			IBk.addVotes(performances, kMin, labels[i], found, count, votes);
+		}
+
+		return performances;
+	}
+
+	/**
+	 * Searches the training examples of a fold directly for the neighbors of an example.
+	 *
+	 * @param  p - the number of the fold
+	 * @param  i - the index of the example
+	 * @param  k - the number of neighbors to find
+	 * @param  found - the array receiving the class labels of the neighbors from nearest to farthest
+	 * @return the number of neighbors found
+	 * @throws Exception
+	 */
+	private int search( int p, int i, int k, int[] found ) throws Exception {
+		if( foldSearches[p] == null ) {
+			int size = 0;
+			for(int j = 0; j < counts.length; j++) {
+				if( dataset.getPartition(j) != p ) size++;
+			}
+			int[] index = new int[size];
+			for(int j = 0, t = 0; j < counts.length; j++) {
+				if( dataset.getPartition(j) != p ) index[t++] = j;
+			}
+
+			DataSet training = new DataSet(ibk.dataset, index);
+			foldSearches[p] = ibk.createSearch(training);
+			foldSearches[p].build(training);
+		}
+
+		NeighborHeap heap = new NeighborHeap(k);
+		foldSearches[p].search(ibk.scale(dataset.getExamples().get(i)), heap);
+		heap.sort();
+		for(int j = 0; j < heap.size(); j++) {
+			found[j] = heap.getLabel(j);
+		}
+		return heap.size();
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * NeighborHeap.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+/**
+ * A bounded binary max-heap of the k nearest neighbors found so far.
+ * Neighbors are ordered by distance and then by their index in the training set,
+ * so among neighbors at the same distance the ones seen first are kept, and the
+ * set of k nearest neighbors does not depend on the order in which they are offered.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-29
+ */
+public class NeighborHeap {
+	/** the distances of the neighbors, in heap order */
+	private double[] distances;
+	/** the class labels of the neighbors, in heap order */
+	private int[] labels;
+	/** the indices of the neighbors in the training set, in heap order */
+	private int[] indices;
+	/** the number of neighbors in the heap */
+	private int size;
+
+	/**
+	 * Explicit constructor.
+	 *
+	 * @param k - the number of neighbors to keep
+	 */
+	public NeighborHeap( int k ) {
+		this.distances = new double[k];
+		this.labels = new int[k];
+		this.indices = new int[k];
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the distance a neighbor must not exceed to enter the heap.
+	 *
+	 * @return the distance of the farthest neighbor if the heap is full, or infinity otherwise
+	 */
+	public double bound() {
+		return size < distances.length ? Double.POSITIVE_INFINITY : distances[0];
+	}
+
+	/**
+	 * Offers a neighbor, which replaces the farthest neighbor if the heap is full and it is nearer.
+	 *
+	 * @param  distance - the distance of the neighbor
+	 * @param  label - the class label of the neighbor
+	 * @param  index - the index of the neighbor in the training set
+	 * @return true if the neighbor was kept
+	 */
+	public boolean offer( double distance, int label, int index ) {
+		if( size < distances.length ) {
+			// Sift the new neighbor up from the bottom
+			int i = size++;
+			while( i > 0 ) {
+				int parent = (i - 1) >>> 1;
+				if( !worse(distance, index, distances[parent], indices[parent]) ) break;
+				move(parent, i);
+				i = parent;
+			}
+			put(i, distance, label, index);
+			return true;
+		}
+
+		if( size == 0 || !worse(distances[0], indices[0], distance, index) ) return false;
+
+		// Replace the farthest neighbor and sift it down
+		this.siftDown(distance, label, index, size);
+		return true;
+	}
+
+	/**
+	 * Places a neighbor at the top of the heap and sifts it down to its position.
+	 *
+	 * @param distance - the distance of the neighbor
+	 * @param label - the class label of the neighbor
+	 * @param index - the index of the neighbor in the training set
+	 * @param limit - the number of positions of the heap
+	 */
+	private void siftDown( double distance, int label, int index, int limit ) {
+		int i = 0;
+		while( true ) {
+			int child = 2 * i + 1;
+			if( child >= limit ) break;
+			if( child + 1 < limit && worse(distances[child + 1], indices[child + 1], distances[child], indices[child]) ) child++;
+			if( !worse(distances[child], indices[child], distance, index) ) break;
+			move(child, i);
+			i = child;
+		}
+		put(i, distance, label, index);
+	}
+
+	/**
+	 * Sorts the neighbors from nearest to farthest, so getDistance(0) is the nearest.
+	 * The heap must be cleared before more neighbors are offered.
+	 */
+	public void sort() {
+		for(int end = size - 1; end > 0; end--) {
+			double distance = distances[end];
+			int label = labels[end];
+			int index = indices[end];
+			move(0, end);
+			this.siftDown(distance, label, index, end);
+		}
+	}
+
+	/**
+	 * Returns true if the first neighbor is farther than the second.
+	 *
+	 * @param  d1 - the distance of the first neighbor
+	 * @param  i1 - the index of the first neighbor
+	 * @param  d2 - the distance of the second neighbor
+	 * @param  i2 - the index of the second neighbor
+	 * @return true if the first neighbor is farther, or as far and later in the training set
+	 */
+	private static boolean worse( double d1, int i1, double d2, int i2 ) {
+		return d1 > d2 || (d1 == d2 && i1 > i2);
+	}
+
+	/**
+	 * Moves a neighbor to another position of the heap.
+	 *
+	 * @param from - the current position
+	 * @param to - the new position
+	 */
+	private void move( int from, int to ) {
+		distances[to] = distances[from];
+		labels[to] = labels[from];
+		indices[to] = indices[from];
+	}
+
+	/**
+	 * Stores a neighbor at a position of the heap.
+	 *
+	 * @param i - the position
+	 * @param distance - the distance of the neighbor
+	 * @param label - the class label of the neighbor
+	 * @param index - the index of the neighbor
+	 */
+	private void put( int i, double distance, int label, int index ) {
+		distances[i] = distance;
+		labels[i] = label;
+		indices[i] = index;
+	}
+
+	/**
+	 * Offers all neighbors of another heap, such as one filled from a shard of the training set.
+	 * The result is the same as if this heap had been offered every neighbor directly.
+	 *
+	 * @param other - the heap to merge into this one
+	 * @param offset - the index in the training set of the other heap's first example
+	 */
+	public void merge( NeighborHeap other, int offset ) {
+		for(int i = 0; i < other.size; i++) {
+			if( other.distances[i] <= this.bound() ) {
+				this.offer(other.distances[i], other.labels[i], other.indices[i] + offset);
+			}
+		}
+	}
+
+	/**
+	 * Removes all neighbors.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of neighbors in the heap.
+	 *
+	 * @return the number of neighbors
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of neighbors the heap keeps.
+	 *
+	 * @return k
+	 */
+	public int capacity() {
+		return distances.length;
+	}
+
+	/**
+	 * Returns the distance of the ith neighbor in heap order.
+	 *
+	 * @param  i - a position in the heap
+	 * @return the distance
+	 */
+	public double getDistance( int i ) {
+		return distances[i];
+	}
+
+	/**
+	 * Returns the class label of the ith neighbor in heap order.
+	 *
+	 * @param  i - a position in the heap
+	 * @return the class label
+	 */
+	public int getLabel( int i ) {
+		return labels[i];
+	}
+
+	/**
+	 * Returns the training-set index of the ith neighbor in heap order.
+	 *
+	 * @param  i - a position in the heap
+	 * @return the index
+	 */
+	public int getIndex( int i ) {
+		return indices[i];
+	}
+}
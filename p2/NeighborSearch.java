@@ -0,0 +1,169 @@
+/*
+ * NeighborSearch.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Abstract class for finding the nearest neighbors of a query in a training set.
+ * Distances are squared Eucledien distances, where a mismatched nominal value counts 1.0,
+ * so they order neighbors the same way as the distances themselves without a square root.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-29
+ */
+public abstract class NeighborSearch {
+	/** the training set, already scaled */
+	protected DataSet dataset;
+	/** the index of the class label */
+	protected int classIndex;
+	/** whether each attribute is nominal */
+	protected boolean[] nominal;
+
+	/**
+	 * Prepares the search over a training set.
+	 *
+	 * @param  dataset - the scaled training set
+	 * @throws Exception
+	 */
+	public void build( DataSet dataset ) throws Exception {
+		this.setDataSet(dataset);
+	}
+
+	/**
+	 * Sets the training set and looks up its attribute types.
+	 *
+	 * @param dataset - the scaled training set
+	 */
+	protected void setDataSet( DataSet dataset ) {
+		Attributes attributes = dataset.getAttributes();
+		this.dataset = dataset;
+		this.classIndex = attributes.getClassIndex();
+		this.nominal = new boolean[attributes.size()];
+		for(int i = 0; i < nominal.length; i++) {
+			nominal[i] = attributes.get(i) instanceof NominalAttribute;
+		}
+	}
+
+	/**
+	 * Writes the structures built over the training set, so they can be read back without rebuilding.
+	 *
+	 * @param  writer - the writer of a saved IBk
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void write( IBkWriter writer ) throws IOException {
+	}
+
+	/**
+	 * Reads the structures written by write over the same training set.
+	 *
+	 * @param  reader - the reader of a saved IBk
+	 * @param  dataset - the scaled training set
+	 * @throws Exception - if the file cannot be read
+	 */
+	public void read( IBkReader reader, DataSet dataset ) throws Exception {
+		this.setDataSet(dataset);
+	}
+
+	/**
+	 * Offers the nearest training examples of a query to a heap.
+	 *
+	 * @param  query - a scaled query example
+	 * @param  heap - the heap receiving the neighbors
+	 * @throws Exception
+	 */
+	public abstract void search( Example query, NeighborHeap heap ) throws Exception;
+
+	/**
+	 * Offers the nearest training examples of a range of queries to their heaps.
+	 * Searches may override this to share work between the queries of a batch.
+	 *
+	 * @param  queries - scaled query examples
+	 * @param  heaps - the heap receiving the neighbors of each query
+	 * @param  from - the first query
+	 * @param  to - the end of the queries
+	 * @throws Exception
+	 */
+	public void search( Example[] queries, NeighborHeap[] heaps, int from, int to ) throws Exception {
+		for(int q = from; q < to; q++) {
+			this.search(queries[q], heaps[q]);
+		}
+	}
+
+	/**
+	 * Returns the squared distance between a query and a training example.
+	 * The sum is abandoned as soon as it exceeds the bound, since such an example cannot be a neighbor.
+	 *
+	 * @param  query - a scaled query example
+	 * @param  example - a training example
+	 * @param  bound - the distance beyond which the exact value is not needed
+	 * @return the squared distance, or a partial sum greater than the bound
+	 */
+	protected double distance( Example query, Example example, double bound ) {
+		double distance = 0.0;
+		for(int i = 0; i < nominal.length; i++) {
+			if( i == classIndex ) continue;
+
+			// If nominal attribute mismatched, increase distance by 1.0
+			if( nominal[i] ) {
+				if( Double.compare(query.getDouble(i), example.getDouble(i)) != 0 ) {
+					distance += 1.0;
+				}
+			}
+
+			// If numeric attribute mismatched, increase distance by squared differences
+			else {
+				double difference = query.getDouble(i) - example.getDouble(i);
+				distance += difference * difference;
+			}
+
+			if( distance > bound ) break;
+		}
+		return distance;
+	}
+
+	/**
+	 * Returns the class label of a training example.
+	 *
+	 * @param  example - a training example
+	 * @return the index of its class label
+	 */
+	protected int getLabel( Example example ) {
+		return (int) example.getDouble(classIndex);
+	}
+
+	/**
+	 * Returns the training set.
+	 *
+	 * @return the scaled training set
+	 */
+	public DataSet getDataSet() {
+		return dataset;
+	}
+
+	/**
+	 * Copies a buffer built on the heap into a new one of another length, to grow or trim it.
+	 *
+	 * @param  buffer - a buffer backed by an array
+	 * @param  length - the length of the copy
+	 * @return the copy, padded with zeros if it is longer
+	 */
+	protected static IntBuffer resize( IntBuffer buffer, int length ) {
+		return IntBuffer.wrap(Arrays.copyOf(buffer.array(), length));
+	}
+
+	/**
+	 * Copies a buffer built on the heap into a new one of another length, to grow or trim it.
+	 *
+	 * @param  buffer - a buffer backed by an array
+	 * @param  length - the length of the copy
+	 * @return the copy, padded with zeros if it is longer
+	 */
+	protected static DoubleBuffer resize( DoubleBuffer buffer, int length ) {
+		return DoubleBuffer.wrap(Arrays.copyOf(buffer.array(), length));
+	}
+}
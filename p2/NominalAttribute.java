@@ -13,6 +13,7 @@ import java.util.ArrayList;
  * @since 	2018-09-20
  */
 public class NominalAttribute extends Attribute {
+	private static final long serialVersionUID = 1L;
 
 	/** a list of strings for the domain of nominal attributes */
 	ArrayList<String> domain;
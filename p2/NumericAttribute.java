@@ -14,6 +14,7 @@ import java.util.ArrayList;
  * @since 	2018-09-20
  */
 public class NumericAttribute extends Attribute {
+	private static final long serialVersionUID = 1L;
 	
 	/**
 	 * Default constructor.
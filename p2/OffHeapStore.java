@@ -0,0 +1,215 @@
+/*
+ * OffHeapStore.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Stores the values of examples outside the Java heap, row by row.
+ * Rows are kept in segments of direct byte buffers, or of a memory-mapped
+ * temporary file when a directory is given, so the number of examples is
+ * not bounded by the heap size and the garbage collector never scans them.
+ * The last segment starts small and doubles until it reaches the segment size.
+ * Direct buffers are bounded by -XX:MaxDirectMemorySize; file-backed segments are not.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-26
+ */
+public class OffHeapStore {
+	/** the target size of a segment, in bytes */
+	private static final long SEGMENT_BYTES = 1L << 30;
+	/** the initial number of rows of a segment */
+	private static final int INITIAL_ROWS = 1024;
+	/** the number of values in a row */
+	private int width;
+	/** log2 of the number of rows in a segment */
+	private int shift;
+	/** the number of rows in a segment minus one */
+	private int mask;
+	/** the segments holding the rows */
+	private DoubleBuffer[] segments;
+	/** the number of segments in use */
+	private int count;
+	/** the number of rows the last segment can hold */
+	private int lastCapacity;
+	/** the number of stored rows */
+	private int rows;
+	/** the directory of the backing file, or null for direct memory */
+	private String directory;
+	/** the backing file, or null for direct memory */
+	private FileChannel channel;
+
+	/**
+	 * Explicit constructor.
+	 *
+	 * @param  width - the number of values in a row
+	 * @param  directory - the directory for a backing file, or null to use direct memory
+	 */
+	public OffHeapStore( int width, String directory ) {
+		this.width = Math.max(width, 1);
+		int rowsPerSegment = Integer.highestOneBit((int) Math.max(1, SEGMENT_BYTES / (8L * this.width)));
+		this.shift = Integer.numberOfTrailingZeros(rowsPerSegment);
+		this.mask = rowsPerSegment - 1;
+		this.segments = new DoubleBuffer[4];
+		this.count = 0;
+		this.rows = 0;
+		this.directory = directory;
+
+		if( directory != null ) {
+			try {
+				File file = File.createTempFile("examples", ".bin", new File(directory));
+				file.deleteOnExit();
+				this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+			}
+			catch ( IOException e ) {
+				throw new RuntimeException("Cannot create the off-heap backing file: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Maps rows already stored in a file, row by row as little-endian doubles, without copying them.
+	 * The store is read-only.
+	 *
+	 * @param  channel - the file holding the rows, which may be closed once mapped
+	 * @param  offset - the position of the first row in the file
+	 * @param  rows - the number of rows
+	 * @param  width - the number of values in a row
+	 * @return the store
+	 * @throws IOException - if the file cannot be mapped
+	 */
+	public static OffHeapStore map( FileChannel channel, long offset, int rows, int width ) throws IOException {
+		OffHeapStore store = new OffHeapStore(width, null);
+		int rowsPerSegment = store.mask + 1;
+		for(int start = 0; start < rows; start += rowsPerSegment) {
+			int capacity = Math.min(rowsPerSegment, rows - start);
+			long position = offset + 8L * store.width * start;
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * store.width * capacity);
+			if( store.count == store.segments.length ) store.segments = Arrays.copyOf(store.segments, store.count * 2);
+			store.segments[store.count++] = buffer.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+			store.lastCapacity = capacity;
+		}
+		store.rows = rows;
+		return store;
+	}
+
+	/**
+	 * Appends the values of an example as a new row.
+	 *
+	 * @param  example - the example to be appended
+	 * @return the index of the new row
+	 */
+	public int add( Example example ) {
+		if( (rows >>> shift) == count ) {
+			allocate(count, Math.min(INITIAL_ROWS, mask + 1));
+		}
+		else if( (rows & mask) == lastCapacity ) {
+			allocate(count - 1, Math.min(lastCapacity * 2, mask + 1));
+		}
+
+		DoubleBuffer segment = segments[rows >>> shift];
+		int base = (rows & mask) * width;
+		for(int j = 0; j < width; j++) {
+			segment.put(base + j, example.getDouble(j));
+		}
+		return rows++;
+	}
+
+	/**
+	 * Allocates a new segment, or grows the last one keeping its rows.
+	 *
+	 * @param index - the index of the segment
+	 * @param capacity - the number of rows the segment must hold
+	 */
+	private void allocate( int index, int capacity ) {
+		long bytes = 8L * width * capacity;
+		try {
+			ByteBuffer buffer;
+			if( channel != null ) {
+				// Every segment has a fixed region of the file, so remapping keeps its rows
+				long start = 8L * width * (mask + 1L) * index;
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, start, bytes);
+			}
+			else {
+				buffer = ByteBuffer.allocateDirect((int) bytes);
+			}
+			DoubleBuffer segment = buffer.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+
+			if( index < count ) {
+				// Copy the rows of a direct segment being grown
+				if( channel == null ) {
+					DoubleBuffer old = segments[index].duplicate();
+					old.clear();
+					segment.put(old);
+					segment.clear();
+				}
+			}
+			else {
+				if( count == segments.length ) segments = Arrays.copyOf(segments, count * 2);
+				count++;
+			}
+			segments[index] = segment;
+			lastCapacity = capacity;
+		}
+		catch ( IOException e ) {
+			throw new RuntimeException("Cannot grow the off-heap store: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the value of an attribute in a row.
+	 *
+	 * @param  row - the row index
+	 * @param  j - the attribute index
+	 * @return the value
+	 */
+	public double getDouble( int row, int j ) {
+		return segments[row >>> shift].get((row & mask) * width + j);
+	}
+
+	/**
+	 * Sets the value of an attribute in a row.
+	 *
+	 * @param row - the row index
+	 * @param j - the attribute index
+	 * @param value - the value
+	 */
+	public void set( int row, int j, double value ) {
+		segments[row >>> shift].put((row & mask) * width + j, value);
+	}
+
+	/**
+	 * Returns the number of values in a row.
+	 *
+	 * @return the row width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the directory of the backing file.
+	 *
+	 * @return the directory, or null if the store uses direct memory
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the number of stored rows.
+	 *
+	 * @return the number of rows
+	 */
+	public int size() {
+		return rows;
+	}
+}
@@ -50,6 +50,18 @@ public class Performance extends Object {
 		this.n++;
 	}
 
+	/**
+	 * Add a prediction from a buffer of distributions
+	 * 
+	 * @param actual - the index of actual class
+	 * @param distributions - the distributions written by Classifier.getDistributions()
+	 * @param base - the first entry of the prediction's distribution
+	 */
+	public void add( int actual, double[] distributions, int base ) {
+		if(actual == Utils.maxIndex(distributions, base, base + this.c)) this.corrects++;
+		this.n++;
+	}
+
 	/**
 	 * Add performance with another performance object
 	 * 
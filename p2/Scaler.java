@@ -3,8 +3,6 @@
  * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
  */
 
-import java.util.ArrayList;
-
 /**
  * Scaler Class for scale values of each example on given dataset
  *
@@ -15,17 +13,48 @@ public class Scaler extends Object {
 
 	/* attributes of the dataset */
 	private Attributes attributes;
-	/* array list containing min value of each attribute */
-	private ArrayList<Double> mins;
-	/* array list containing max value of each attribute */
-	private ArrayList<Double> maxs;
+	/* array containing min value of each attribute */
+	private double[] mins;
+	/* array containing max value of each attribute */
+	private double[] maxs;
 
 	/**
 	 * Default constructor
 	 */
 	public Scaler() {
-		this.mins = new ArrayList<Double>();
-		this.maxs = new ArrayList<Double>();
+		this.mins = new double[0];
+		this.maxs = new double[0];
+	}
+
+	/**
+	 * Constructor with known min and max of each attribute
+	 * 
+	 * @param attributes - attributes of the dataset
+	 * @param mins       - min value of each attribute
+	 * @param maxs       - max value of each attribute
+	 */
+	public Scaler( Attributes attributes, double[] mins, double[] maxs ) {
+		this.attributes = attributes;
+		this.mins = mins;
+		this.maxs = maxs;
+	}
+
+	/**
+	 * Get min value of each attribute
+	 * 
+	 * @return array of min values
+	 */
+	public double[] getMins() {
+		return this.mins;
+	}
+
+	/**
+	 * Get max value of each attribute
+	 * 
+	 * @return array of max values
+	 */
+	public double[] getMaxs() {
+		return this.maxs;
 	}
 
 	/**
@@ -37,12 +66,15 @@ public class Scaler extends Object {
 	public void configure( DataSet ds ) throws Exception {
 		attributes = ds.getAttributes();
 		Examples examples = ds.getExamples();
+		ColumnStore columns = ds.getColumns();
+		mins = new double[attributes.size()];
+		maxs = new double[attributes.size()];
 
 		for(int i = 0; i < attributes.size(); i++) {
 			// Nominal attributes
 			if( attributes.get(i) instanceof NominalAttribute ) {
-				mins.add(0.0);
-				maxs.add(0.0);
+				mins[i] = 0.0;
+				maxs[i] = 0.0;
 			}
 
 			// Numeric attributes
@@ -51,31 +83,68 @@ public class Scaler extends Object {
 				double minValue = Double.MAX_VALUE;
 				double maxValue = -Double.MAX_VALUE;
 
-				// Run through all examples for each attribute
-				for(int j = 0; j < examples.size(); j++) {
-					double value = examples.get(j).get(i);	// j-th example, i-th attribute
-					if(value < minValue) {
-						minValue = value;
+				// Columnar data set, scan the attribute's column directly
+				if( columns != null ) {
+					double[] column = columns.getNumericColumn(i);
+					for(int j = 0; j < examples.size(); j++) {
+						double value = column[examples.getRow(j)];
+						if(value < minValue) {
+							minValue = value;
+						}
+						if(value > maxValue) {
+							maxValue = value;
+						}
 					}
-					if(value > maxValue) {
-						maxValue = value;
+				}
+
+				// Run through all examples for each attribute
+				else {
+					for(int j = 0; j < examples.size(); j++) {
+						double value = examples.get(j).getDouble(i);	// j-th example, i-th attribute
+						if(value < minValue) {
+							minValue = value;
+						}
+						if(value > maxValue) {
+							maxValue = value;
+						}
 					}
 				}
-				mins.add(minValue);
-				maxs.add(maxValue);
+				mins[i] = minValue;
+				maxs[i] = maxValue;
 			}
 		}
 	}
 
 	/**
 	 * Scale all examples in a DataSet object to [0,1]
+	 * The given data set is not modified
 	 * 
 	 * @param  ds        - a DataSet object
-	 * @return           - a sclaled DataSet object
+	 * @return           - a sclaled copy of the DataSet object
 	 * @throws Exception 
 	 */
 	public DataSet scale( DataSet ds ) throws Exception {
+		// Columnar data set, copy the columns then scale each numeric column
+		if( ds.isColumnar() ) {
+			ColumnStore columns = ds.getColumns().copy(ds.getExamples());
+			for(int i = 0; i < attributes.size(); i++) {
+				if(attributes.get(i) instanceof NumericAttribute) {
+					double[] column = columns.getNumericColumn(i);
+					for(int j = 0; j < columns.size(); j++) {
+						column[j] = scale(column[j], i);
+					}
+				}
+			}
+			return new DataSet(attributes, columns);
+		}
+
 		DataSet scaledDataSet = new DataSet(attributes);
+
+		// Off-heap data set, keep the scaled copy off heap too
+		if( ds.isOffHeap() ) {
+			scaledDataSet.setOffHeap(ds.getOffHeapDirectory());
+		}
+
 		for(int i = 0; i < ds.getExamples().size(); i++) {
 			// Scale each example then add to a scaled DataSet object
 			Example scaledExample = scale(ds.getExamples().get(i));
@@ -86,31 +155,42 @@ public class Scaler extends Object {
 
 	/**
 	 * Scale all attributes in an example to [0,1]
+	 * The given example is not modified
 	 * 
 	 * @param  example   - an example to be scaled
-	 * @return           - a scaled example
+	 * @return           - a scaled copy of the example
 	 * @throws Exception 
 	 */
 	public Example scale( Example example ) throws Exception {
+		Example scaledExample = new Example(example.toDoubleArray());
+
 		// Scale all attributes
 		for(int i = 0; i < attributes.size(); i++) {
 			// Consider only numeric attribute
 			if(attributes.get(i) instanceof NumericAttribute) {
-				double value = example.get(i);
-				double scaledValue;
-
-				if(value < mins.get(i)) {
-					scaledValue = 0.0;
-				}
-				else if(value > maxs.get(i)) {
-					scaledValue = 1.0;
-				}
-				else {
-					scaledValue = (value - mins.get(i)) / (maxs.get(i) - mins.get(i));
-				}
-				example.set(i, scaledValue); // Set scaled value back to the example
+				double scaledValue = scale(example.getDouble(i), i);
+				scaledExample.set(i, scaledValue); // Set scaled value to the copy
 			}
 		}
-		return example;
+		return scaledExample;
+	}
+
+	/**
+	 * Scale a value of the ith attribute to [0,1]
+	 * 
+	 * @param  value - a value of the ith attribute
+	 * @param  i     - an index of a numeric attribute
+	 * @return       - a scaled value
+	 */
+	public double scale( double value, int i ) {
+		if(value < mins[i]) {
+			return 0.0;
+		}
+		else if(value > maxs[i]) {
+			return 1.0;
+		}
+		else {
+			return (value - mins[i]) / (maxs[i] - mins[i]);
+		}
 	}
 }
\ No newline at end of file
@@ -3,6 +3,8 @@
  * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
  */
 
+import java.io.*;
+
 /**
  * Implements a class for storing training and testing sets for machine-learning methods.
  *
@@ -87,33 +89,88 @@ public class TrainTestSets implements OptionHandler {
 	 * Sets the options for this train/test set.
 	 * The -t option loads the data set with the specified file name as the training set.
 	 * The -T option loads the data set with the specified file name as the testing set.
+	 * Files ending in .mffb are loaded from the binary format, and are always columnar.
+	 * The -columnar option stores the loaded data sets column by column.
+	 * The -cache option names a directory of snapshots of parsed files, see DataSetCache,
+	 * and the -cachesize option bounds its size in megabytes.
+	 * The -offheap option stores the examples of text files outside the Java heap, in direct memory
+	 * or, with the -offheapdir option, in a memory-mapped file in the specified directory.
+	 * Off-heap loading bypasses the cache and is not combined with -columnar.
 	 * 
 	 * @param options - the arguments
 	 * @throws Exception - if the file is not found or if a parsing exception occurs
 	 */
 	public void setOptions( String[] options ) throws Exception {
 		try {
+			String trainFile = null;
+			String testFile = null;
+			boolean columnar = false;
+			String cacheDirectory = null;
+			long cacheSize = DataSetCache.DEFAULT_MAX_BYTES;
+			boolean offHeap = false;
+			String offHeapDirectory = null;
+
 			for( int i = 0; i < options.length; i++ ) {
 				String option = options[i];
 
-				// Train data loading
+				// Train data file
 				if( option.equals("-t") ) {
 					if( options.length > i + 1 ) {
-						train.load(options[i+1]);
+						trainFile = options[i+1];
 					}
 					else {
 						throw new Exception("Training file name is missing");
 					}
 				}
 
-				// Test data loading
+				// Test data file
 				if( option.equals("-T") ) {
 					if( options.length > i + 1 )
-						test.load(options[i+1]);
+						testFile = options[i+1];
 					else {
 						throw new Exception("Testing file name is missing");
 					}
 				}
+
+				// Column storage
+				if( option.equals("-columnar") ) {
+					columnar = true;
+				}
+
+				// Snapshot cache
+				if( option.equals("-cache") ) {
+					if( options.length > i + 1 )
+						cacheDirectory = options[i+1];
+					else {
+						throw new Exception("Cache directory is missing");
+					}
+				}
+				if( option.equals("-cachesize") && options.length > i + 1 ) {
+					cacheSize = Long.parseLong(options[i+1]) << 20;
+				}
+
+				// Off-heap storage
+				if( option.equals("-offheap") ) {
+					offHeap = true;
+				}
+				if( option.equals("-offheapdir") ) {
+					if( options.length > i + 1 ) {
+						offHeap = true;
+						offHeapDirectory = options[i+1];
+					}
+					else {
+						throw new Exception("Off-heap directory is missing");
+					}
+				}
+			}
+
+			DataSetCache cache = ( cacheDirectory != null && !offHeap ) ? new DataSetCache(cacheDirectory, cacheSize) : null;
+			if( trainFile != null ) train = load(trainFile, cache, offHeap, offHeapDirectory);
+			if( testFile != null ) test = load(testFile, cache, offHeap, offHeapDirectory);
+
+			if( columnar ) {
+				train.toColumnar();
+				test.toColumnar();
 			}
 		} // Try
 		catch ( Exception e ) {
@@ -122,6 +179,34 @@ public class TrainTestSets implements OptionHandler {
 		}
 	}
 
+	/**
+	 * Loads a data set from a text or binary file depending on the file's extension.
+	 * 
+	 * @param  filename - the file from which to read
+	 * @param  cache - the snapshot cache for text files, or null
+	 * @param  offHeap - whether to store the examples of text files off heap
+	 * @param  offHeapDirectory - the directory for the off-heap backing file, or null for direct memory
+	 * @return the loaded data set
+	 * @throws Exception - if the file is not found or if a parsing exception occurs
+	 */
+	private static DataSet load( String filename, DataSetCache cache, boolean offHeap, String offHeapDirectory ) throws Exception {
+		if( filename.endsWith(".mffb") ) {
+			DataSet dataset = new DataSet();
+			dataset.loadBinary(filename);
+			return dataset;
+		}
+		if( cache != null ) {
+			return cache.load(filename);
+		}
+
+		DataSet dataset = new DataSet();
+		if( offHeap ) {
+			dataset.setOffHeap(offHeapDirectory);
+		}
+		dataset.load(filename);
+		return dataset;
+	}
+
 	/**
 	 * Returns a string representation of this train/test set in a format
 	 * similar to that of the file format. Includes the testing examples if present.
@@ -129,16 +214,46 @@ public class TrainTestSets implements OptionHandler {
 	 * @return a string containing the attributes information and examples
 	 */
 	public String toString() {
-		StringBuilder trainTestString = new StringBuilder();
+		StringWriter writer = new StringWriter();
+		try {
+			writeTo(writer);
+		} // Try
+		catch ( IOException e ) {
+			System.out.println( e.getMessage() );
+			e.printStackTrace();
+		} // Catch
+
+		return writer.toString();
+	}
 
+	/**
+	 * Writes this train/test set in a format similar to that of the file format.
+	 * Includes the testing examples if present.
+	 * 
+	 * @param  writer - the writer to which the train/test set is written
+	 * @throws IOException - if the writer fails
+	 */
+	public void writeTo( Writer writer ) throws IOException {
 		// Train dataset
-		String trainString = ( train.name != null ) ? train.toString() : "<Empty training set>";
-		trainTestString.append(trainString);
+		if( train.name != null ) train.writeTo(writer);
+		else writer.write("<Empty training set>");
 
 		// Test dataset
-		String testString = ( test.name != null ) ? test.toString() : "<Empty testing set>";
-		trainTestString.append("\n\n" + testString);
-		
-		return trainTestString.toString();
+		writer.write("\n\n");
+		if( test.name != null ) test.writeTo(writer);
+		else writer.write("<Empty testing set>");
+	}
+
+	/**
+	 * Writes this train/test set in a format similar to that of the file format.
+	 * The stream is flushed but not closed.
+	 * 
+	 * @param  out - the stream to which the train/test set is written
+	 * @throws IOException - if the stream fails
+	 */
+	public void writeTo( OutputStream out ) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out), 1 << 16);
+		writeTo(writer);
+		writer.flush();
 	}
 }
\ No newline at end of file
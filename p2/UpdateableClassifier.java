@@ -0,0 +1,14 @@
+/*
+ * UpdateableClassifier.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+/**
+ * Interface for a classifier that learns from one example at a time after it is trained
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-11-03
+ */
+public interface UpdateableClassifier {
+	public void update( Example example ) throws Exception;
+}
@@ -3,6 +3,13 @@
  * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
  */
 
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 /**
  * Utilities Class containing some miscellaneous methods
  *
@@ -10,6 +17,8 @@
  * @since 	2018-10-15
  */
 public class Utils {
+	/* pools shared by all classifiers asking for the same number of threads */
+	private static final ConcurrentHashMap<Integer, ForkJoinPool> pools = new ConcurrentHashMap<Integer, ForkJoinPool>();
 
 	/**
 	 * Search for max value in an array and find its index
@@ -18,14 +27,63 @@ public class Utils {
 	 * @return   index of max value of p array
 	 */
 	public static int maxIndex( double[] p ) {
+		return maxIndex(p, 0, p.length);
+	}
+
+	/**
+	 * Search for max value in a range of an array and find its index
+	 * 
+	 * @param  p     an array
+	 * @param  from  the first index of the range
+	 * @param  to    the end of the range
+	 * @return       index of max value in the range, counted from the first index
+	 */
+	public static int maxIndex( double[] p, int from, int to ) {
 		int maxIdx = 0;
 		double maxValue = -Double.MAX_VALUE;
-		for(int i = 0; i < p.length; i++) {
+		for(int i = from; i < to; i++) {
 			if ( p[i] > maxValue ) {
 				maxValue = p[i];
-				maxIdx = i;
+				maxIdx = i - from;
 			}
 		}
 		return maxIdx;
 	}
+
+	/**
+	 * Get the pool running tasks on a number of threads
+	 * All cores use the common pool, and every other number of threads has one pool shared
+	 * by all callers, whose daemon threads stay alive for later tasks instead of being recreated
+	 * 
+	 * @param  threads - the number of threads, or 0 for all cores
+	 * @return         - the pool
+	 */
+	public static ForkJoinPool getPool( int threads ) {
+		if( threads <= 0 ) {
+			return ForkJoinPool.commonPool();
+		}
+		return pools.computeIfAbsent(threads, n -> new ForkJoinPool(n));
+	}
+
+	/**
+	 * Run tasks on a number of threads and wait for all of them
+	 * 
+	 * @param  threads   - the number of threads, or 0 for all cores
+	 * @param  tasks     - the tasks to run
+	 * @return           - the result of each task, in the order of the tasks
+	 * @throws Exception - the exception thrown by the first failed task
+	 */
+	public static <T> ArrayList<T> invokeAll( int threads, ArrayList<Callable<T>> tasks ) throws Exception {
+		ArrayList<T> results = new ArrayList<T>();
+		try {
+			for(Future<T> result : getPool(threads).invokeAll(tasks)) {
+				results.add(result.get());
+			}
+		}
+		catch ( ExecutionException e ) {
+			if( e.getCause() instanceof Exception ) throw (Exception) e.getCause();
+			throw e;
+		}
+		return results;
+	}
 }
@@ -0,0 +1,291 @@
+/*
+ * VPTree.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+
+/**
+ * Finds nearest neighbors with a vantage-point tree, which works for any mix of
+ * nominal and numeric attributes since it relies only on the triangle inequality.
+ * IBk's distance is a metric: it is the Eucledien distance after mapping each nominal
+ * value to a one-hot vector scaled by 1/sqrt(2).
+ * Each node splits its examples at the median distance from a vantage point, and a
+ * search skips every side that cannot hold an example nearer than the current k-th nearest.
+ * Pruning allows a small slack for rounding, and candidates are compared by the same
+ * squared distances as a linear search, so the neighbors found are exactly the same.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-30
+ */
+public class VPTree extends NeighborSearch {
+	/** the largest number of examples in a leaf */
+	private static final int LEAF_SIZE = 16;
+	/** the relative slack allowed for rounding when pruning */
+	private static final double SLACK = 1e-9;
+	/** the seed for choosing vantage points */
+	private static final long SEED = 1L;
+	/** the examples of the training set */
+	private Examples examples;
+	/** the class labels of the examples in training-set order */
+	private IntBuffer labels;
+	/** the indices of the examples in the training set, in tree order */
+	private IntBuffer rows;
+	/** the vantage point of each node, or -1 for a leaf */
+	private IntBuffer vantages;
+	/** the median distance from the vantage point of each node */
+	private DoubleBuffer radii;
+	/** the child of each node holding examples within the median distance */
+	private IntBuffer insides;
+	/** the child of each node holding examples beyond the median distance */
+	private IntBuffer outsides;
+	/** the first example of each node */
+	private IntBuffer starts;
+	/** the end of the examples of each node */
+	private IntBuffer ends;
+	/** the number of nodes */
+	private int nodes;
+
+	/**
+	 * Builds the tree over a training set.
+	 *
+	 * @param  dataset - the scaled training set
+	 * @throws Exception
+	 */
+	public void build( DataSet dataset ) throws Exception {
+		super.build(dataset);
+
+		examples = dataset.getExamples();
+		int n = examples.size();
+		int[] classes = new int[n];
+		int[] order = new int[n];
+		for(int r = 0; r < n; r++) {
+			classes[r] = this.getLabel(examples.get(r));
+			order[r] = r;
+		}
+
+		int capacity = Math.max(1, 2 * n / LEAF_SIZE + 1);
+		vantages = IntBuffer.allocate(capacity);
+		radii = DoubleBuffer.allocate(capacity);
+		insides = IntBuffer.allocate(capacity);
+		outsides = IntBuffer.allocate(capacity);
+		starts = IntBuffer.allocate(capacity);
+		ends = IntBuffer.allocate(capacity);
+		nodes = 0;
+		this.build(order, 0, n, new double[n], new Random(SEED));
+		this.resizeNodes(nodes);
+		labels = IntBuffer.wrap(classes);
+		rows = IntBuffer.wrap(order);
+	}
+
+	/**
+	 * Builds the subtree over a range of examples.
+	 *
+	 * @param  order - the examples, reordered in place
+	 * @param  start - the first example of the range
+	 * @param  end - the end of the range
+	 * @param  distances - scratch space for the distances from the vantage point
+	 * @param  random - the source of vantage points
+	 * @return the index of the node
+	 */
+	private int build( int[] order, int start, int end, double[] distances, Random random ) {
+		int node = this.newNode(start, end);
+		if( end - start <= LEAF_SIZE ) return node;
+
+		// Move a random vantage point to the front of the range
+		int pick = start + random.nextInt(end - start);
+		int vantage = order[pick];
+		order[pick] = order[start];
+		order[start] = vantage;
+
+		Example point = examples.get(vantage);
+		for(int i = start + 1; i < end; i++) {
+			distances[i] = Math.sqrt(this.distance(point, examples.get(order[i]), Double.POSITIVE_INFINITY));
+		}
+
+		int middle = (start + 1 + end) >>> 1;
+		select(distances, order, start + 1, end, middle);
+
+		vantages.put(node, vantage);
+		radii.put(node, distances[middle]);
+		int inside = this.build(order, start + 1, middle, distances, random);
+		int outside = this.build(order, middle, end, distances, random);
+		insides.put(node, inside);
+		outsides.put(node, outside);
+		return node;
+	}
+
+	/**
+	 * Allocates a leaf node.
+	 *
+	 * @param  start - the first example of the node
+	 * @param  end - the end of the examples of the node
+	 * @return the index of the node
+	 */
+	private int newNode( int start, int end ) {
+		if( nodes == vantages.limit() ) {
+			this.resizeNodes(nodes * 2);
+		}
+		vantages.put(nodes, -1);
+		starts.put(nodes, start);
+		ends.put(nodes, end);
+		return nodes++;
+	}
+
+	/**
+	 * Grows or trims the buffers of the nodes.
+	 *
+	 * @param capacity - the number of nodes the buffers hold
+	 */
+	private void resizeNodes( int capacity ) {
+		vantages = resize(vantages, capacity);
+		radii = resize(radii, capacity);
+		insides = resize(insides, capacity);
+		outsides = resize(outsides, capacity);
+		starts = resize(starts, capacity);
+		ends = resize(ends, capacity);
+	}
+
+	/**
+	 * Reorders a range of examples so the kth has the median distance,
+	 * with no greater distance before it and no smaller distance after it.
+	 *
+	 * @param distances - the distances of the examples, reordered along with them
+	 * @param order - the examples, reordered in place
+	 * @param start - the first example of the range
+	 * @param end - the end of the range
+	 * @param k - the position to select
+	 */
+	private void select( double[] distances, int[] order, int start, int end, int k ) {
+		int lo = start;
+		int hi = end - 1;
+		while( lo < hi ) {
+			double pivot = distances[(lo + hi) >>> 1];
+			int i = lo;
+			int m = hi;
+			while( i <= m ) {
+				while( distances[i] < pivot ) i++;
+				while( distances[m] > pivot ) m--;
+				if( i <= m ) {
+					double distance = distances[i];
+					distances[i] = distances[m];
+					distances[m] = distance;
+					int row = order[i];
+					order[i] = order[m];
+					order[m] = row;
+					i++;
+					m--;
+				}
+			}
+			if( k <= m ) hi = m;
+			else if( k >= i ) lo = i;
+			else break;
+		}
+	}
+
+	/**
+	 * Writes the structures built over the training set, so they can be read back without rebuilding.
+	 *
+	 * @param  writer - the writer of a saved IBk
+	 * @throws IOException - if the file cannot be written
+	 */
+	public void write( IBkWriter writer ) throws IOException {
+		writer.putInts(labels);
+		writer.putInts(rows);
+		writer.putInt(nodes);
+		writer.putInts(vantages);
+		writer.putDoubles(radii);
+		writer.putInts(insides);
+		writer.putInts(outsides);
+		writer.putInts(starts);
+		writer.putInts(ends);
+	}
+
+	/**
+	 * Maps the structures written by write over the same training set.
+	 *
+	 * @param  reader - the reader of a saved IBk
+	 * @param  dataset - the scaled training set
+	 * @throws Exception - if the file cannot be read
+	 */
+	public void read( IBkReader reader, DataSet dataset ) throws Exception {
+		this.setDataSet(dataset);
+		examples = dataset.getExamples();
+		labels = reader.mapInts();
+		rows = reader.mapInts();
+		nodes = reader.getInt();
+		vantages = reader.mapInts();
+		radii = reader.mapDoubles();
+		insides = reader.mapInts();
+		outsides = reader.mapInts();
+		starts = reader.mapInts();
+		ends = reader.mapInts();
+	}
+
+	/**
+	 * Offers the nearest training examples of a query to a heap.
+	 *
+	 * @param  query - a scaled query example
+	 * @param  heap - the heap receiving the neighbors
+	 * @throws Exception
+	 */
+	public void search( Example query, NeighborHeap heap ) throws Exception {
+		if( nodes > 0 ) {
+			this.search(0, query, heap);
+		}
+	}
+
+	/**
+	 * Searches a subtree.
+	 *
+	 * @param node - the node
+	 * @param query - a scaled query example
+	 * @param heap - the heap receiving the neighbors
+	 */
+	private void search( int node, Example query, NeighborHeap heap ) {
+		int vantage = vantages.get(node);
+		if( vantage < 0 ) {
+			for(int i = starts.get(node); i < ends.get(node); i++) {
+				double bound = heap.bound();
+				int row = rows.get(i);
+				double distance = this.distance(query, examples.get(row), bound);
+				if( distance <= bound ) {
+					heap.offer(distance, labels.get(row), row);
+				}
+			}
+			return;
+		}
+
+		double squared = this.distance(query, examples.get(vantage), Double.POSITIVE_INFINITY);
+		if( squared <= heap.bound() ) {
+			heap.offer(squared, labels.get(vantage), vantage);
+		}
+
+		// Visit the side of the query first, then the other side if it may hold a neighbor
+		double distance = Math.sqrt(squared);
+		double radius = radii.get(node);
+		if( distance < radius ) {
+			this.search(insides.get(node), query, heap);
+			if( !this.prune(radius - distance, heap) ) this.search(outsides.get(node), query, heap);
+		}
+		else {
+			this.search(outsides.get(node), query, heap);
+			if( !this.prune(distance - radius, heap) ) this.search(insides.get(node), query, heap);
+		}
+	}
+
+	/**
+	 * Returns true if a side of a node is too far to hold a neighbor.
+	 *
+	 * @param  gap - the lower bound on the distance from the query to the side
+	 * @param  heap - the heap of neighbors found so far
+	 * @return true if the side can be skipped
+	 */
+	private boolean prune( double gap, NeighborHeap heap ) {
+		double bound = Math.sqrt(heap.bound());
+		return gap > bound + SLACK * (1.0 + bound);
+	}
+}
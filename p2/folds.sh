@@ -0,0 +1,9 @@
+for f in *.mff; do
+	echo $f;
+	java NaiveBayes -t $f -x 10 > combined.out;
+	java NaiveBayes -t $f -x 10 -retrainfolds > retrained.out;
+	if diff combined.out retrained.out; then
+		echo "Combined and retrained folds agree";
+	fi
+	rm -f combined.out retrained.out;
+done
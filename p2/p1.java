@@ -10,7 +10,8 @@ public class p1 {
     try {
       TrainTestSets tts = new TrainTestSets();
       tts.setOptions( args );
-      System.out.println( tts );
+      tts.writeTo( System.out );
+      System.out.println();
     } // try
     catch ( Exception e ) {
       System.out.println( e.getMessage() );
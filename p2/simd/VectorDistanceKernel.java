@@ -0,0 +1,70 @@
+/*
+ * VectorDistanceKernel.java
+ * Copyright (c) 2018 Georgetown University.  All Rights Reserved.
+ */
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A distance kernel using the incubating Vector API, which processes as many rows
+ * per instruction as the hardware's preferred vector width holds.
+ * Lanes subtract, multiply and add separately, without fused multiply-add, so every
+ * distance is rounded exactly as in the scalar kernel.
+ *
+ * This class is optional and is not part of the plain build. From the p2 directory,
+ * compile it with
+ *   javac --add-modules jdk.incubator.vector -cp . -d . simd/VectorDistanceKernel.java
+ * and run with java --add-modules jdk.incubator.vector to select it.
+ *
+ * @author 	Kornraphop Kawintiranon (Ken) <kk1155@georgetown.edu>
+ * @since 	2018-10-30
+ */
+public class VectorDistanceKernel extends DistanceKernel {
+	/** the preferred vector shape of this hardware */
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Returns the name of this kernel.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return "vector" + SPECIES.length();
+	}
+
+	/**
+	 * Adds the squared differences between a value and a block of a column to the distances of its rows.
+	 *
+	 * @param value - the query value
+	 * @param column - the column of training values
+	 * @param rows - the row of the column for each index, or null if index r is row r
+	 * @param distances - the distances to which the squared differences are added, starting at distances[0]
+	 * @param from - the first row of the block
+	 * @param to - the end of the block
+	 */
+	public void addSquaredDifferences( double value, double[] column, int[] rows, double[] distances, int from, int to ) {
+		DoubleVector query = DoubleVector.broadcast(SPECIES, value);
+		int upper = from + SPECIES.loopBound(to - from);
+		int r = from;
+
+		if( rows == null ) {
+			for(; r < upper; r += SPECIES.length()) {
+				DoubleVector difference = query.sub(DoubleVector.fromArray(SPECIES, column, r));
+				DoubleVector.fromArray(SPECIES, distances, r - from).add(difference.mul(difference)).intoArray(distances, r - from);
+			}
+		}
+		else {
+			for(; r < upper; r += SPECIES.length()) {
+				DoubleVector difference = query.sub(DoubleVector.fromArray(SPECIES, column, 0, rows, r));
+				DoubleVector.fromArray(SPECIES, distances, r - from).add(difference.mul(difference)).intoArray(distances, r - from);
+			}
+		}
+
+		// Finish the rows that do not fill a vector
+		for(; r < to; r++) {
+			double difference = value - column[rows == null ? r : rows[r]];
+			distances[r - from] += difference * difference;
+		}
+	}
+}